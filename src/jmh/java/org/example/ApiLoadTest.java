@@ -0,0 +1,163 @@
+package org.example;
+
+import com.google.gson.JsonObject;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load test of {@link ResumeApiServer} against a local {@link GeminiStub}. Each
+ * client runs whole conversations back to back: create a session, send some refinements,
+ * download the DOCX, delete the session. Prints requests/s and latency percentiles per
+ * endpoint. With --url it drives an already running server instead of starting its own.
+ *
+ * <pre>
+ * ./gradlew apiLoadTest --args="[--clients 32] [--seconds 20] [--refinements 3] [--delay 50]
+ *                              [--stream false] [--url http://host:port]"
+ * </pre>
+ */
+public class ApiLoadTest {
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final String baseUrl;
+    private final int refinements;
+    private final boolean stream;
+
+    private final Metrics metrics = Metrics.local();
+    private final Map<String, LatencyRecorder> latencies = new LinkedHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicInteger users = new AtomicInteger();
+
+    ApiLoadTest(String baseUrl, int refinements, boolean stream) {
+        this.baseUrl = baseUrl;
+        this.refinements = refinements;
+        this.stream = stream;
+        for (String name : new String[] {"create", "message", "docx", "delete"}) {
+            latencies.put(name, metrics.latency(name));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = BatchResumeGenerator.parseArgs(args);
+        int clients = Integer.parseInt(opts.getOrDefault("clients", "32"));
+        int seconds = Integer.parseInt(opts.getOrDefault("seconds", "20"));
+        int refinements = Integer.parseInt(opts.getOrDefault("refinements", "3"));
+        boolean stream = Boolean.parseBoolean(opts.getOrDefault("stream", "false"));
+
+        GeminiStub stub = null;
+        ResumeApiServer server = null;
+        ApiLoadTest test;
+        try {
+            String url = opts.get("url");
+            if (url == null) {
+                stub = new GeminiStub(Long.parseLong(opts.getOrDefault("delay", "50")));
+                GeminiServer engine = new GeminiServer(GeminiStub.KEY_PATH, GeminiServer.Mode.REFINEMENT,
+                        GeminiServer.sharedHttpClient(), stub.generateUrl());
+                server = new ResumeApiServer(engine, new InetSocketAddress("127.0.0.1", 0),
+                        Files.createTempDirectory("resume-api-load"), clients * 2);
+                server.start();
+                url = "http://127.0.0.1:" + server.getPort();
+            }
+
+            test = new ApiLoadTest(url, refinements, stream);
+            System.out.printf("%d clients for %d s against %s (%d refinements per session, stream=%b)%n",
+                    clients, seconds, url, refinements, stream);
+            test.run(clients, Duration.ofSeconds(seconds));
+        } finally {
+            if (server != null) server.close();
+            if (stub != null) stub.close();
+        }
+        System.exit(test.errors.get() == 0 ? 0 : 1);
+    }
+
+    void run(int clients, Duration duration) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) conversation();
+                    return null;
+                });
+            }
+        }
+        printStats(System.nanoTime() - start);
+    }
+
+    /** One full session; any failure counts as an error and ends it early */
+    private void conversation() {
+        try {
+            // a distinct user each time, so the engine's response cache never answers for the stub
+            JsonObject user = new JsonObject();
+            user.addProperty("name", "Load Test " + users.incrementAndGet());
+            user.addProperty("email", "load@example.com");
+            user.addProperty("phone", "555-0100");
+            user.addProperty("cityState", "Hamden, CT");
+            user.addProperty("about", "Software engineer");
+            user.addProperty("quals", "Java, HTTP, load testing");
+            HttpResponse<String> created = call("create", HttpRequest.newBuilder(uri("/sessions"))
+                    .POST(HttpRequest.BodyPublishers.ofString(user.toString())), 201);
+            if (created == null) return;
+            String session = created.headers().firstValue("Location").orElseThrow();
+
+            for (int i = 0; i < refinements; i++) {
+                JsonObject message = new JsonObject();
+                message.addProperty("message", "Make bullet " + (i + 1) + " more specific");
+                if (call("message", HttpRequest.newBuilder(uri(session + "/messages"))
+                        .POST(HttpRequest.BodyPublishers.ofString(message.toString())), 200) == null) return;
+            }
+            call("docx", HttpRequest.newBuilder(URI.create(baseUrl + session + "/resume.docx")).GET(), 200);
+            call("delete", HttpRequest.newBuilder(URI.create(baseUrl + session)).DELETE(), 204);
+        } catch (Exception e) {
+            errors.incrementAndGet();
+            System.err.println("Conversation failed: " + e);
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path + (stream ? "?stream=true" : ""));
+    }
+
+    /** Sends, times and checks one request; returns null (and counts an error) on a bad status */
+    private HttpResponse<String> call(String endpoint, HttpRequest.Builder request, int expectedStatus)
+            throws Exception {
+        long startNanos = System.nanoTime();
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        latencies.get(endpoint).recordSince(startNanos);
+        requests.incrementAndGet();
+        if (response.statusCode() != expectedStatus) {
+            errors.incrementAndGet();
+            System.err.println(endpoint + ": HTTP " + response.statusCode() + " " + response.body());
+            return null;
+        }
+        return response;
+    }
+
+    private void printStats(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%d requests in %.1f s: %.1f requests/s, %d errors%n",
+                requests.get(), seconds, requests.get() / seconds, errors.get());
+        System.out.printf("%-8s %8s %10s %10s %10s %10s %10s%n", "endpoint", "count", "p50 ms", "p90 ms", "p99 ms",
+                "p99.9 ms", "max ms");
+        latencies.forEach((name, recorder) -> {
+            LatencyRecorder.Snapshot s = recorder.snapshot();
+            System.out.printf("%-8s %8d %10.2f %10.2f %10.2f %10.2f %10.2f%n", name, s.count(),
+                    s.p50() / 1e6, s.p90() / 1e6, s.p99() / 1e6, s.p999() / 1e6, s.max() / 1e6);
+        });
+    }
+}
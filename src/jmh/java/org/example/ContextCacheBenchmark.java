@@ -0,0 +1,66 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Refinement turns with the system instruction and pinned resume held in a cached context
+ * versus sent inline every time. The stub charges prefill per uncached input token, so the
+ * difference is the bytes no longer sent plus the prefill no longer paid; the input tokens
+ * per turn are printed at the end of each trial. The stub has no minimum context size here,
+ * and resume pinning, off by default, is turned on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dgemini.contextCache.minTokens=0", "-Dgemini.contextCache.pinResume=true"})
+public class ContextCacheBenchmark {
+
+    @Param({"true", "false"})
+    public boolean contextCache;
+
+    private GeminiStub stub;
+    private GeminiServer engine;
+    private Session session;
+    private final AtomicLong sequence = new AtomicLong();
+    private long turnsAtStart;
+    private long tokensAtStart;
+
+    @Setup
+    public void setUp() throws Exception {
+        stub = new GeminiStub(0);
+        stub.setPrefillNanosPerToken(20_000);
+        engine = new GeminiServer(GeminiStub.KEY_PATH, GeminiServer.Mode.REFINEMENT,
+                GeminiServer.sharedHttpClient(), stub.generateUrl());
+        engine.setResponseCache(null);
+        if (!contextCache) engine.setContextCache(null);
+
+        UserInfo user = new UserInfo();
+        user.setName("Jane Doe");
+        user.setEmail("jane@example.com");
+        user.setAbout("Backend-minded CS student.");
+        user.setQuals("Java. Kotlin. SQL.");
+        session = engine.createSession(GeminiServer.Mode.REFINEMENT);
+        engine.sendUserMessage(session, user.toResumePrompt()); // the first draft, which gets pinned
+        turnsAtStart = sequence.get();
+        tokensAtStart = stub.getInputTokens();
+    }
+
+    @TearDown
+    public void tearDown() {
+        long turns = Math.max(1, sequence.get() - turnsAtStart);
+        System.out.printf("input tokens per turn: %d sent, contexts: %d%n",
+                (stub.getInputTokens() - tokensAtStart) / turns, stub.getContextCount());
+        stub.close();
+    }
+
+    @Benchmark
+    public String refinementTurn() throws Exception {
+        return engine.sendUserMessage(session, "Refinement #" + sequence.incrementAndGet()
+                + ": tighten the summary and move Skills above Education.");
+    }
+}
@@ -0,0 +1,67 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Documents per second from the compiled template versus building each one through XWPF,
+ * rendering the same model into memory so disk speed stays out of the comparison. Run with
+ * {@code -t 4} for the batch case. The fromReply/fromForm pair covers both exporters end to
+ * end: GeminiServer's (parse the reply, then render) and ResumeFileExporter's (form fields).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocxExportBenchmark {
+
+    private UserInfo user;
+    private ResumeDocument resume;
+    private DocxTemplate template;
+
+    @Setup
+    public void setUp() {
+        user = new UserInfo();
+        user.setName("Jane Doe");
+        user.setEmail("jane@example.com");
+        user.setPhone("555-0100");
+        user.setCityState("Hamden, CT");
+        user.setQuals("Java. Kotlin. SQL. Distributed systems.");
+        user.setAbout("Backend-focused CS student who likes data pipelines.");
+        resume = ResumeDocument.fromReply(user, GeminiStub.RESUME_TEXT);
+        template = DocxTemplate.resume();
+    }
+
+    @Benchmark
+    public byte[] compiledTemplate() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        template.write(resume, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] xwpf() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        XwpfDocxRenderer.INSTANCE.write(resume, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] fromReply() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        template.write(ResumeDocument.fromReply(user, GeminiStub.RESUME_TEXT), out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] fromForm() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        template.write(ResumeDocument.fromForm(user), out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,55 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Send-to-exported latency with export chained off the reply future. The score should
+ * follow the stub's response delay plus a constant export cost, where the old fixed sleep
+ * always cost 8 s. ExportLatencyTest asserts that through GeminiServer.exportOnReply, the
+ * chain the chat uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportLatencyBenchmark {
+
+    @Param({"50", "500", "2000"})
+    public long responseMillis;
+
+    private GeminiStub stub;
+    private GeminiServer server;
+    private Path outputDir;
+    private final UserInfo user = new UserInfo();
+
+    @Setup
+    public void setUp() throws Exception {
+        stub = new GeminiStub(responseMillis);
+        server = new GeminiServer(GeminiStub.KEY_PATH, GeminiServer.Mode.REFINEMENT,
+                GeminiServer.sharedHttpClient(), stub.generateUrl());
+        outputDir = Files.createTempDirectory("export-latency");
+        user.setName("Jane Doe");
+        user.setEmail("jane@example.com");
+        user.setPhone("555-0100");
+        user.setCityState("Hamden, CT");
+        user.setQuals("Java. Kotlin. SQL.");
+    }
+
+    @TearDown
+    public void tearDown() {
+        stub.close();
+    }
+
+    @Benchmark
+    public Path sendThenExport() {
+        return server.sendAsync("Build my resume.")
+                .thenApply(reply -> server.exportResume(user, reply, outputDir))
+                .join();
+    }
+}
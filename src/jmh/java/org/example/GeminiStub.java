@@ -0,0 +1,294 @@
+package org.example;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal in-process stand-in for the Gemini generateContent endpoint, with enough of
+ * cachedContents (create, TTL update, reference by name) to exercise context caching
+ */
+public class GeminiStub implements AutoCloseable {
+
+    /** Key resource for engines pointed at the stub; the real API_KEY.txt is checked in empty */
+    public static final String KEY_PATH = "/org/example/STUB_API_KEY.txt";
+
+    public static final String RESUME_TEXT =
+            "Jane Doe\nHamden, CT | jane@example.com | 555-0100\n\n" +
+            "Summary\nComputer science student focused on backend systems.\n\n" +
+            "Education\nQuinnipiac University, Hamden, CT\n\n" +
+            "Skills\n* Java\n* Kotlin\n* SQL\n\n" +
+            "Experience\n* Research Assistant - Built data pipelines.\n* Tutor - Taught intro programming.\n\n" +
+            "Projects\n* Resume Builder - JavaFX client for the Gemini API.";
+
+    /** RESUME_TEXT as a structured-output reply following ResumeSchema */
+    public static final String RESUME_JSON = "{\"name\":\"Jane Doe\",\"contact\":\"Hamden, CT | jane@example.com | 555-0100\","
+            + "\"summary\":\"Computer science student focused on backend systems.\","
+            + "\"education\":[\"Quinnipiac University, Hamden, CT\"],\"skills\":[\"Java\",\"Kotlin\",\"SQL\"],"
+            + "\"experience\":[{\"title\":\"Research Assistant\",\"details\":[\"Built data pipelines.\"]},"
+            + "{\"title\":\"Tutor\",\"details\":[\"Taught intro programming.\"]}],"
+            + "\"projects\":[{\"title\":\"Resume Builder\",\"details\":[\"JavaFX client for the Gemini API.\"]}]}";
+
+    private static final Pattern CACHED_CONTENT = Pattern.compile("\"cachedContent\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern TTL = Pattern.compile("\"ttl\"\\s*:\\s*\"(\\d+)s\"");
+
+    private static final int STREAM_CHUNK_CHARS = 40;
+    private static final int STREAM_CHUNKS = (RESUME_TEXT.length() + STREAM_CHUNK_CHARS - 1) / STREAM_CHUNK_CHARS;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private volatile long delayMillis;
+    private volatile double faultRate;
+    private volatile double slowRate;
+    private volatile long slowDelayMillis;
+    private volatile long prefillNanosPerToken;
+    private volatile int contextMinTokens;
+
+    /** Cached contexts by name: their size in tokens and when they expire */
+    private record CachedContext(int tokens, long expiresAtMillis) { }
+    private final Map<String, CachedContext> contexts = new ConcurrentHashMap<>();
+    private final AtomicInteger contextIds = new AtomicInteger();
+    private final AtomicLong inputTokens = new AtomicLong();
+    private final AtomicLong cachedTokens = new AtomicLong();
+
+    public GeminiStub(long delayMillis) throws IOException {
+        this.delayMillis = delayMillis;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public void setDelayMillis(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    /** Fraction of calls answered with a 429 (with Retry-After) or a 503 instead of a resume */
+    public void setFaultRate(double faultRate) {
+        this.faultRate = faultRate;
+    }
+
+    /** Fraction of calls that take slowDelayMillis instead of the normal delay, for tail-latency runs */
+    public void setSlowTail(double slowRate, long slowDelayMillis) {
+        this.slowRate = slowRate;
+        this.slowDelayMillis = slowDelayMillis;
+    }
+
+    /** Emulated prefill: each uncached input token (about four request bytes) costs this much */
+    public void setPrefillNanosPerToken(long nanos) {
+        this.prefillNanosPerToken = nanos;
+    }
+
+    /** Smallest context accepted by cachedContents, as Gemini's 1024-token minimum */
+    public void setContextMinTokens(int minTokens) {
+        this.contextMinTokens = minTokens;
+    }
+
+    /** Input tokens sent in request bodies, i.e. not served from a cached context */
+    public long getInputTokens() {
+        return inputTokens.get();
+    }
+
+    /** Input tokens served from cached contexts */
+    public long getCachedTokens() {
+        return cachedTokens.get();
+    }
+
+    public int getContextCount() {
+        return contexts.size();
+    }
+
+    /** Drops every cached context, as if their TTL had run out */
+    public void expireContexts() {
+        contexts.clear();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public String generateUrl() {
+        return baseUrl() + "/v1/models/gemini-2.5-flash:generateContent";
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestMethod().equals("HEAD")) { // connection warm-up
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+        byte[] request = exchange.getRequestBody().readAllBytes();
+        String text = new String(request, StandardCharsets.UTF_8);
+        String path = exchange.getRequestURI().getPath();
+        if (path.contains("/cachedContents")) {
+            handleCachedContents(exchange, path, text);
+            return;
+        }
+        boolean structured = text.contains("\"responseMimeType\"");
+        if (!prefill(exchange, text)) return;
+        if (path.endsWith(":streamGenerateContent")) {
+            handleStream(exchange);
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < faultRate) {
+            sendFault(exchange, random.nextBoolean());
+            return;
+        }
+        sleep(random.nextDouble() < slowRate ? slowDelayMillis : delayMillis);
+        byte[] body = responseJson(structured ? RESUME_JSON : RESUME_TEXT).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /** Counts and charges the input tokens; answers 403 (like Gemini) for an unknown or expired context */
+    private boolean prefill(HttpExchange exchange, String body) throws IOException {
+        int tokens = body.length() / 4;
+        Matcher m = CACHED_CONTENT.matcher(body);
+        if (m.find()) {
+            CachedContext context = contexts.get(m.group(1));
+            if (context == null || context.expiresAtMillis() < System.currentTimeMillis()) {
+                sendError(exchange, 403, "CachedContent not found (or permission denied)", "PERMISSION_DENIED");
+                return false;
+            }
+            cachedTokens.addAndGet(context.tokens());
+        }
+        inputTokens.addAndGet(tokens);
+        long nanos = tokens * prefillNanosPerToken;
+        if (nanos > 0) LockSupport.parkNanos(nanos);
+        return true;
+    }
+
+    /** POST .../cachedContents creates a context; PATCH .../cachedContents/{id} moves its expiry */
+    private void handleCachedContents(HttpExchange exchange, String path, String body) throws IOException {
+        Matcher ttl = TTL.matcher(body);
+        long ttlMillis = ttl.find() ? Long.parseLong(ttl.group(1)) * 1000 : 3_600_000;
+        String name;
+        int tokens;
+        if (exchange.getRequestMethod().equals("PATCH")) {
+            name = path.substring(path.indexOf("cachedContents/"));
+            CachedContext existing = contexts.get(name);
+            if (existing == null) {
+                sendError(exchange, 403, "CachedContent not found (or permission denied)", "PERMISSION_DENIED");
+                return;
+            }
+            tokens = existing.tokens();
+        } else {
+            tokens = body.length() / 4;
+            if (tokens < contextMinTokens) {
+                sendError(exchange, 400, "Cached content is too small. total_token_count=" + tokens
+                        + ", min_total_token_count=" + contextMinTokens, "INVALID_ARGUMENT");
+                return;
+            }
+            name = "cachedContents/stub-" + contextIds.incrementAndGet();
+            inputTokens.addAndGet(tokens);
+            if (prefillNanosPerToken > 0) LockSupport.parkNanos(tokens * prefillNanosPerToken);
+        }
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        contexts.put(name, new CachedContext(tokens, expiresAt));
+
+        JsonObject usage = new JsonObject();
+        usage.addProperty("totalTokenCount", tokens);
+        JsonObject json = new JsonObject();
+        json.addProperty("name", name);
+        json.addProperty("expireTime", Instant.ofEpochMilli(expiresAt).toString());
+        json.add("usageMetadata", usage);
+        byte[] response = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message, String reason) throws IOException {
+        byte[] body = ("{\"error\":{\"code\":" + status + ",\"message\":\"" + message
+                + "\",\"status\":\"" + reason + "\"}}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /** Emits the resume as SSE chunks, spreading the configured delay across them */
+    private void handleStream(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0); // chunked
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int i = 0; i < RESUME_TEXT.length(); i += STREAM_CHUNK_CHARS) {
+                String piece = RESUME_TEXT.substring(i, Math.min(RESUME_TEXT.length(), i + STREAM_CHUNK_CHARS));
+                out.write(("data: " + responseJson(piece) + "\n\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                sleep(delayMillis / STREAM_CHUNKS);
+            }
+        }
+    }
+
+    private static void sendFault(HttpExchange exchange, boolean rateLimited) throws IOException {
+        int status = rateLimited ? 429 : 503;
+        byte[] body = ("{\"error\":{\"code\":" + status + ",\"message\":\""
+                + (rateLimited ? "Resource has been exhausted" : "The model is overloaded")
+                + "\",\"status\":\"" + (rateLimited ? "RESOURCE_EXHAUSTED" : "UNAVAILABLE") + "\"}}")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (rateLimited) exchange.getResponseHeaders().set("Retry-After", "0");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sleep(long delayMillis) {
+        if (delayMillis <= 0) return;
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static String responseJson(String text) {
+        JsonObject part = new JsonObject();
+        part.addProperty("text", text);
+        JsonArray parts = new JsonArray();
+        parts.add(part);
+        JsonObject content = new JsonObject();
+        content.add("parts", parts);
+        content.addProperty("role", "model");
+        JsonObject candidate = new JsonObject();
+        candidate.add("content", content);
+        candidate.addProperty("finishReason", "STOP");
+        JsonArray candidates = new JsonArray();
+        candidates.add(candidate);
+        JsonObject root = new JsonObject();
+        root.add("candidates", candidates);
+        return root.toString();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
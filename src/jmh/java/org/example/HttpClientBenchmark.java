@@ -0,0 +1,46 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-turn latency with the shared pooled client versus a fresh client per message.
+ * Sample mode reports the p50/p99 percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpClientBenchmark {
+
+    private GeminiStub stub;
+    private GeminiServer shared;
+
+    @Setup
+    public void setUp() throws Exception {
+        stub = new GeminiStub(0);
+        shared = new GeminiServer(GeminiStub.KEY_PATH, GeminiServer.Mode.REFINEMENT,
+                GeminiServer.sharedHttpClient(), stub.generateUrl());
+    }
+
+    @TearDown
+    public void tearDown() {
+        stub.close();
+    }
+
+    @Benchmark
+    public String sharedClient() throws Exception {
+        return shared.sendUserMessage("Tighten the summary.");
+    }
+
+    @Benchmark
+    public String clientPerMessage() throws Exception {
+        GeminiServer server = new GeminiServer(GeminiStub.KEY_PATH, GeminiServer.Mode.REFINEMENT,
+                HttpClient.newHttpClient(), stub.generateUrl());
+        return server.sendUserMessage("Tighten the summary.");
+    }
+}
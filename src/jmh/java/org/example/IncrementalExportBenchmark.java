@@ -0,0 +1,82 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A refinement loop on one DOCX: each call flips one bullet of one section and exports
+ * again. "full" rewrites the whole file every time, "incremental" re-renders the changed
+ * section and writes only document.xml and the directory, the static parts being copied
+ * from the previous file by the kernel. Both put the whole file on disk (bytesWritten);
+ * bytesRendered counts what each call built in memory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IncrementalExportBenchmark {
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Written {
+        public long bytesWritten;
+        public long bytesRendered;
+    }
+
+    private IncrementalDocxExporter exporter;
+    private ResumeDocument[] versions;
+    private Path target;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        exporter = new IncrementalDocxExporter(DocxTemplate.resume());
+        UserInfo user = new UserInfo();
+        user.setName("Jane Doe");
+        user.setEmail("jane@example.com");
+        user.setPhone("555-0100");
+        user.setCityState("Hamden, CT");
+        user.setQuals("Java. Kotlin. SQL.");
+        ResumeDocument base = ResumeDocument.fromReply(user, GeminiStub.RESUME_TEXT);
+        versions = new ResumeDocument[] {base, withEditedBullet(base)};
+        target = Files.createTempDirectory("incremental-export").resolve("Jane_Doe.docx");
+    }
+
+    /** The same resume with the first line of its last section reworded */
+    private static ResumeDocument withEditedBullet(ResumeDocument resume) {
+        List<ResumeDocument.Section> sections = new ArrayList<>(resume.sections());
+        ResumeDocument.Section last = sections.get(sections.size() - 1);
+        List<String> lines = new ArrayList<>(last.lines());
+        lines.set(0, lines.get(0) + ", measured and documented");
+        sections.set(sections.size() - 1, new ResumeDocument.Section(last.title(), lines, last.bulleted()));
+        return new ResumeDocument(resume.name(), resume.contact(), sections, resume.footer());
+    }
+
+    @Benchmark
+    public void full(Written written, Blackhole bh) throws IOException {
+        exporter.forget(target);
+        export(written, bh);
+    }
+
+    @Benchmark
+    public void incremental(Written written, Blackhole bh) throws IOException {
+        export(written, bh);
+    }
+
+    private void export(Written written, Blackhole bh) throws IOException {
+        IncrementalDocxExporter.ExportResult result = exporter.export(versions[next], target);
+        next ^= 1;
+        written.bytesWritten += result.bytesWritten();
+        written.bytesRendered += result.bytesRendered();
+        bh.consume(result);
+    }
+}
@@ -0,0 +1,79 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * What journaling adds to a turn, from eight threads with a session each: recording the turn
+ * (queueing it for the writer) and recording it then waiting until it is on disk. With fsync
+ * on, concurrent waiters share one force per batch, so the durable cost per turn stays well
+ * under a full fsync.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class JournalAppendBenchmark {
+
+    private static final String MESSAGE = "Refinement: tighten the summary and move Skills above Education.";
+    private static final String REPLY = "Jane Doe\n\nSummary\n" + "Backend-minded CS student.\n".repeat(40);
+
+    @Param({"true", "false"})
+    public boolean fsync;
+
+    private Path dir;
+    private SessionJournal journal;
+
+    @State(Scope.Thread)
+    public static class PerThread {
+        Session session;
+
+        @Setup
+        public void setUp(JournalAppendBenchmark benchmark) {
+            session = new Session(GeminiServer.Mode.REFINEMENT);
+            benchmark.journal.opened(session);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("journal-bench");
+        journal = SessionJournal.open(dir, 64L << 20, fsync); // full segments roll over and are dropped
+    }
+
+    /** Lets the writer catch up, so one iteration's backlog is not billed to the next */
+    @TearDown(Level.Iteration)
+    public void drain() throws IOException, InterruptedException {
+        journal.sync();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void recordTurn(PerThread thread) {
+        journal.turn(thread.session, MESSAGE, REPLY);
+    }
+
+    @Benchmark
+    public void recordTurnDurably(PerThread thread) throws IOException, InterruptedException {
+        journal.turn(thread.session, MESSAGE, REPLY);
+        journal.sync();
+    }
+}
@@ -0,0 +1,107 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time to bring back 10,000 sessions after a restart, each with a few refinement turns and a
+ * latest resume: replaying the whole log, versus loading a snapshot and replaying only the
+ * records written after it (here one more turn for every hundredth session). With this few
+ * turns the two hold about the same bytes; the log keeps every turn while a snapshot only
+ * holds what each history still carries, so the snapshot pulls ahead as turns accumulate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JournalRecoveryBenchmark {
+
+    private static final String REPLY = "Jane Doe\njane@example.com\n\nSummary\n"
+            + "Backend-minded CS student who ships reliable services.\n".repeat(8)
+            + "\nSkills\nJava, Kotlin, SQL, Gradle, Docker\n\nExperience\n"
+            + "- Built and operated a queue-backed export service.\n".repeat(10);
+
+    @Param({"10000"})
+    public int sessions;
+
+    @Param({"3"})
+    public int turns;
+
+    @Param({"log", "snapshot"})
+    public String from;
+
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("journal-bench");
+        List<Session> live = Collections.synchronizedList(new ArrayList<>(sessions));
+        try (SessionJournal journal = SessionJournal.open(dir, 64L << 20, false)) {
+            journal.setLiveSessions(() -> {
+                synchronized (live) {
+                    return new ArrayList<>(live);
+                }
+            });
+            for (int i = 0; i < sessions; i++) {
+                Session session = new Session(GeminiServer.Mode.REFINEMENT);
+                live.add(session);
+                journal.opened(session);
+                for (int t = 0; t < turns; t++) {
+                    turn(journal, session, "Refinement #" + t + ": tighten the summary.");
+                }
+            }
+            if (from.equals("snapshot")) {
+                journal.sync();
+                journal.snapshot();
+                for (int i = 0; i < sessions; i += 100) {
+                    turn(journal, live.get(i), "One more change after the snapshot.");
+                }
+            }
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            System.out.printf("%njournal: %d MB in %s%n",
+                    files.mapToLong(f -> f.toFile().length()).sum() >> 20, dir);
+        }
+    }
+
+    private static void turn(SessionJournal journal, Session session, String message) {
+        session.lock.lock();
+        try {
+            session.history.addUser(message);
+            session.history.addModel(REPLY, true);
+            journal.turn(session, message, REPLY);
+            session.setLatestResumeText(REPLY);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public int recover() throws IOException {
+        try (SessionJournal journal = SessionJournal.open(dir, 64L << 20, false)) {
+            int recovered = journal.recovered().size();
+            if (recovered != sessions) throw new IllegalStateException("recovered " + recovered + " of " + sessions);
+            return recovered;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wall time to write one resume as DOCX, PDF and TXT. With one export thread the formats
+ * run back to back; with three the score should approach the slowest single format, which
+ * the pdfOnly benchmark measures on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultiFormatExportBenchmark {
+
+    @Param({"1", "3"})
+    public int exportThreads;
+
+    private ResumeExporter exporter;
+    private ResumeDocument resume;
+    private Path outputDir;
+
+    @Setup
+    public void setUp() throws IOException {
+        exporter = new ResumeExporter(exportThreads);
+        exporter.setIncremental(false); // every call is a full export; IncrementalExportBenchmark covers the rest
+        UserInfo user = new UserInfo();
+        user.setName("Jane Doe");
+        user.setEmail("jane@example.com");
+        user.setPhone("555-0100");
+        user.setCityState("Hamden, CT");
+        user.setQuals("Java. Kotlin. SQL.");
+        resume = ResumeDocument.fromReply(user, GeminiStub.RESUME_TEXT);
+        outputDir = Files.createTempDirectory("multi-format");
+    }
+
+    @Benchmark
+    public Map<ExportFormat, Path> allFormats() {
+        return exporter.export(resume, outputDir, "Jane_Doe", ResumeExporter.DEFAULT_FORMATS);
+    }
+
+    @Benchmark
+    public Map<ExportFormat, Path> pdfOnly() {
+        return exporter.export(resume, outputDir, "Jane_Doe", EnumSet.of(ExportFormat.PDF));
+    }
+}
@@ -0,0 +1,62 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Many threads driving hundreds of sessions on one engine against the stub. Run with
+ * {@code -t 1,4,16,64} to check throughput scales with threads; after each trial every
+ * session's history is checked for interleaved turns, which would indicate a race.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dgemini.scheduler.global=1024", "-Dgemini.http.threads=16"})
+public class MultiSessionBenchmark {
+
+    @Param({"100", "500"})
+    public int sessionCount;
+
+    private GeminiStub stub;
+    private GeminiServer engine;
+    private Session[] sessions;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup
+    public void setUp() throws Exception {
+        stub = new GeminiStub(5); // short think time so the client side dominates
+        engine = new GeminiServer(GeminiStub.KEY_PATH, GeminiServer.Mode.REFINEMENT,
+                GeminiServer.sharedHttpClient(), stub.generateUrl());
+        engine.setResponseCache(null);
+        sessions = new Session[sessionCount];
+        for (int i = 0; i < sessionCount; i++) {
+            sessions[i] = engine.createSession(GeminiServer.Mode.REFINEMENT);
+        }
+    }
+
+    @TearDown
+    public void verifyAndClose() {
+        stub.close();
+        for (Session session : sessions) {
+            List<ChatMessage> turns = session.messages();
+            for (int i = 1; i < turns.size(); i++) {
+                // pinned prompt/resume and the summary come first; after that roles must alternate
+                if (turns.get(i).role().equals(turns.get(i - 1).role()) && !turns.get(i - 1).text().startsWith("Summary of")) {
+                    throw new IllegalStateException("Interleaved turns in session " + session.getId());
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public String randomSessionTurn() throws Exception {
+        Session session = sessions[ThreadLocalRandom.current().nextInt(sessions.length)];
+        return engine.sendUserMessage(session, "Refinement #" + sequence.incrementAndGet());
+    }
+}
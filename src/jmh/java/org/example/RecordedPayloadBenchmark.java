@@ -0,0 +1,61 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response parsing over payloads in the exact shape generateContent returns them (thought
+ * token counts, safety ratings, response ids), kept in src/jmh/resources/org/example/payloads
+ * so parser changes are measured against the same bytes every time. The stream payload is
+ * an alt=sse body for streamGenerateContent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordedPayloadBenchmark {
+
+    @Param({"resume-reply.json", "refinement-reply.json", "structured-reply.json"})
+    public String payload;
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws IOException {
+        body = load(payload);
+    }
+
+    static byte[] load(String name) throws IOException {
+        try (InputStream in = RecordedPayloadBenchmark.class.getResourceAsStream("/org/example/payloads/" + name)) {
+            if (in == null) throw new IOException("Payload not found: " + name);
+            return in.readAllBytes();
+        }
+    }
+
+    @Benchmark
+    public GeminiReply responseParser() throws IOException {
+        return ResponseParser.parse(new ByteArrayInputStream(body));
+    }
+
+    @State(Scope.Benchmark)
+    public static class Stream {
+        byte[] body;
+
+        @Setup
+        public void setUp() throws IOException {
+            body = load("resume-stream.sse");
+        }
+    }
+
+    @Benchmark
+    public String streamParser(Stream stream, Blackhole bh) throws IOException {
+        return new SseChunkParser(bh::consume).parse(new ByteArrayInputStream(stream.body));
+    }
+}
@@ -0,0 +1,84 @@
+package org.example;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-turn request body construction: the old Gson tree rebuilt from Map.of wrappers
+ * versus stitching pre-encoded turns. Turn encoding is paid once when a message is added,
+ * so it is outside the measured region, just as in GeminiServer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+public class RequestBodyBenchmark {
+
+    @Param({"6", "50", "500"})
+    public int turns;
+
+    private String systemInstruction;
+    private byte[] systemContent;
+    private final List<Map<String, Object>> legacyConversation = new ArrayList<>();
+    private final List<ChatMessage> conversation = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        systemInstruction = "You are a professional career coach and resume expert. ".repeat(12);
+        systemContent = RequestBodyEncoder.encodeContent("user", systemInstruction);
+        for (int i = 0; i < turns; i++) {
+            String role = i % 2 == 0 ? "user" : "model";
+            String text = i % 2 == 0 ? "Please rewrite the experience section, turn " + i + "."
+                    : GeminiStub.RESUME_TEXT;
+            legacyConversation.add(Map.of("role", role, "parts", List.of(Map.of("text", text))));
+            conversation.add(ChatMessage.of(role, text));
+        }
+    }
+
+    @Benchmark
+    public byte[] legacyGsonTree() {
+        JsonObject requestBody = new JsonObject();
+        JsonArray contents = new JsonArray();
+
+        JsonObject sysContent = new JsonObject();
+        sysContent.addProperty("role", "user");
+        JsonArray sysParts = new JsonArray();
+        JsonObject sysPart = new JsonObject();
+        sysPart.addProperty("text", systemInstruction);
+        sysParts.add(sysPart);
+        sysContent.add("parts", sysParts);
+        contents.add(sysContent);
+
+        for (Map<String, Object> msg : legacyConversation) {
+            JsonObject content = new JsonObject();
+            JsonArray parts = new JsonArray();
+            String text = (String) ((Map<?, ?>) ((List<?>) msg.get("parts")).get(0)).get("text");
+            JsonObject partObj = new JsonObject();
+            partObj.addProperty("text", text);
+            parts.add(partObj);
+            content.addProperty("role", (String) msg.get("role"));
+            content.add("parts", parts);
+            contents.add(content);
+        }
+        requestBody.add("contents", contents);
+        // BodyPublishers.ofString encodes the String to bytes
+        return requestBody.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void preEncoded(Blackhole bh) {
+        List<byte[]> chunks = RequestBodyEncoder.encode(systemContent, conversation);
+        bh.consume(RequestBodyEncoder.length(chunks));
+        bh.consume(chunks);
+    }
+}
@@ -0,0 +1,62 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turn latency against a stub that fails a share of calls with 429/503 and answers a share
+ * slowly. Every turn must still come back as a resume, never as error text; compare
+ * {@code hedgeAfterMs=0} with hedging on to see the p99 effect of the slow tail.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResilienceBenchmark {
+
+    @Param({"0.1", "0.3"})
+    public double faultRate;
+
+    @Param({"0", "50"})
+    public long hedgeAfterMs;
+
+    private GeminiStub stub;
+    private GeminiServer engine;
+
+    @Setup
+    public void setUp() throws Exception {
+        stub = new GeminiStub(5);
+        stub.setFaultRate(faultRate);
+        stub.setSlowTail(0.05, 500);
+        engine = new GeminiServer(GeminiStub.KEY_PATH, GeminiServer.Mode.REFINEMENT,
+                GeminiServer.sharedHttpClient(), stub.generateUrl());
+        engine.setResponseCache(null);
+        engine.setTransport(new ResilientTransport(GeminiServer.sharedHttpClient(),
+                new RateLimiter(1_000_000, 10_000),
+                new RateLimiter(100_000_000, 1_000_000),
+                new RetryPolicy(6, 1, 20),
+                new CircuitBreaker(1_000, 1_000),
+                Duration.ofMillis(hedgeAfterMs)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        ResilientTransport transport = engine.getTransport();
+        System.out.printf("%nretries=%d hedges=%d hedgeWins=%d failures=%d%n", transport.getRetries(),
+                transport.getHedges(), transport.getHedgeWins(), transport.getFailures());
+        stub.close();
+    }
+
+    @Benchmark
+    public String turnWithFaults() throws Exception {
+        String reply = engine.sendUserMessage("Tighten the summary.");
+        if (!reply.equals(GeminiStub.RESUME_TEXT)) {
+            throw new IllegalStateException("Error reply leaked through as a resume: " + reply);
+        }
+        return reply;
+    }
+}
@@ -0,0 +1,56 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/** A repeated initial prompt served from the response cache versus a stub round-trip */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseCacheBenchmark {
+
+    private static final String PROMPT = "Build a professional resume using the following info:\n"
+            + "Name: Jane Doe\nEmail: jane@example.com\nPhone: 555-0100\nCity/State: Hamden, CT\n"
+            + "About Me: Backend-minded CS student.\nQualifications: Java. Kotlin. SQL.";
+
+    private GeminiStub stub;
+    private ResponseCache cache;
+    private GeminiServer server;
+
+    @Setup
+    public void setUp() throws Exception {
+        stub = new GeminiStub(0);
+        cache = new ResponseCache(256, Duration.ofHours(1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("cache hits=%d misses=%d evictions=%d%n",
+                cache.getHits(), cache.getMisses(), cache.getEvictions());
+        stub.close();
+    }
+
+    /** Each call starts a fresh conversation so the prompt is identical every time */
+    @Setup(Level.Invocation)
+    public void newConversation() throws Exception {
+        server = new GeminiServer(GeminiStub.KEY_PATH, GeminiServer.Mode.REFINEMENT,
+                GeminiServer.sharedHttpClient(), stub.generateUrl());
+    }
+
+    @Benchmark
+    public String cached() throws Exception {
+        server.setResponseCache(cache);
+        return server.sendUserMessage(PROMPT);
+    }
+
+    @Benchmark
+    public String uncached() throws Exception {
+        server.setResponseCache(null);
+        return server.sendUserMessage(PROMPT);
+    }
+}
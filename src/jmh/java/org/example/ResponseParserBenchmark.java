@@ -0,0 +1,69 @@
+package org.example;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The old DOM parse (body String, JsonParser tree, walk to parts[0].text) versus the
+ * JsonReader pull parser reading the raw body bytes, on a resume-sized response that
+ * carries safety ratings and usage metadata.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseParserBenchmark {
+
+    @Param({"1", "8"})
+    public int resumeCopies;
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        body = responseWithMetadata(GeminiStub.RESUME_TEXT.repeat(resumeCopies)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String domParser() {
+        // BodyHandlers.ofString decoded the body before parseResponse ran
+        String responseBody = new String(body, StandardCharsets.UTF_8);
+        JsonObject json = JsonParser.parseString(responseBody).getAsJsonObject();
+        JsonObject firstCandidate = json.getAsJsonArray("candidates").get(0).getAsJsonObject();
+        JsonObject contentObj = firstCandidate.getAsJsonObject("content");
+        return contentObj.getAsJsonArray("parts").get(0).getAsJsonObject().get("text").getAsString();
+    }
+
+    @Benchmark
+    public GeminiReply pullParser() throws Exception {
+        return ResponseParser.parse(new ByteArrayInputStream(body));
+    }
+
+    static String responseWithMetadata(String text) {
+        JsonObject root = JsonParser.parseString(GeminiStub.responseJson(text)).getAsJsonObject();
+        JsonObject candidate = root.getAsJsonArray("candidates").get(0).getAsJsonObject();
+        JsonArray ratings = new JsonArray();
+        for (String category : new String[] {"HARASSMENT", "HATE_SPEECH", "SEXUALLY_EXPLICIT", "DANGEROUS_CONTENT"}) {
+            JsonObject rating = new JsonObject();
+            rating.addProperty("category", "HARM_CATEGORY_" + category);
+            rating.addProperty("probability", "NEGLIGIBLE");
+            ratings.add(rating);
+        }
+        candidate.add("safetyRatings", ratings);
+        JsonObject usage = new JsonObject();
+        usage.addProperty("promptTokenCount", 812);
+        usage.addProperty("candidatesTokenCount", 640);
+        usage.addProperty("totalTokenCount", 1452);
+        root.add("usageMetadata", usage);
+        root.addProperty("modelVersion", "gemini-2.5-flash");
+        return root.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-pass section parsing versus the old extractSection approach (two lowercase copies
+ * of the text per section plus regex splits) on replies from resume size up to a megabyte.
+ * The "noise" shape times random markdown fragments, which ResumeTextParserTest checks never
+ * make the parser throw.
+ *
+ * <p>This is also the scaling check: singlePass is linear, so its score at 1000000 chars
+ * should stay near a tenth of the one at 100000 for both shapes. A hundredth means something
+ * went quadratic.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResumeTextParserBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int chars;
+
+    @Param({"resume", "noise"})
+    public String shape;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(chars + 512);
+        if (shape.equals("resume")) {
+            String[] headings = {"Summary", "**Education**", "## Skills", "Experience:", "Projects", "CERTIFICATIONS"};
+            while (sb.length() < chars) {
+                sb.append(headings[random.nextInt(headings.length)]).append('\n');
+                sb.append("Research Assistant — Quinnipiac University, 2024\n");
+                for (int i = 0; i < 4; i++) {
+                    sb.append("* Built data pipelines with experience in Java and Kotlin, item ").append(i).append('\n');
+                }
+                sb.append('\n');
+            }
+        } else {
+            String alphabet = "ab *-#:\n\t•1.)_SKILLS experience **";
+            while (sb.length() < chars) sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        text = sb.toString();
+    }
+
+    @Benchmark
+    public ParsedResume singlePass() {
+        return ResumeTextParser.parse(text);
+    }
+
+    @Benchmark
+    public List<String> extractSectionBaseline() {
+        List<String> items = new ArrayList<>();
+        for (String line : extractSection(text, "Experience", "Projects").split("\\*")) {
+            if (!line.trim().isEmpty()) items.add(line.trim());
+        }
+        for (String line : extractSection(text, "Projects", null).split("\\*")) {
+            if (!line.trim().isEmpty()) items.add(line.trim());
+        }
+        return items;
+    }
+
+    /** The pre-parser GeminiServer.extractSection, kept here as the baseline */
+    private static String extractSection(String text, String startKeyword, String endKeyword) {
+        text = text.replace("\r", "");
+        int start = text.toLowerCase().indexOf(startKeyword.toLowerCase());
+        if (start == -1) return "";
+        int end = (endKeyword != null)
+                ? text.toLowerCase().indexOf(endKeyword.toLowerCase(), start + startKeyword.length())
+                : -1;
+        if (end == -1) end = text.length();
+        return text.substring(start + startKeyword.length(), end).trim();
+    }
+}
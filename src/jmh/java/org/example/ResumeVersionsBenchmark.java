@@ -0,0 +1,140 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-session cost of keeping every draft. Setup gives 1,000 sessions twenty drafts each,
+ * every refinement rewording a few lines and now and then moving a section, and prints the
+ * bytes per session held by the version stores next to what full copies of every draft would
+ * take, plus the measured heap growth. The benchmarks time reading the latest draft, rebuilding
+ * the worst-placed older one and adding a draft.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResumeVersionsBenchmark {
+
+    @Param({"1000"})
+    public int sessions;
+
+    @Param({"20"})
+    public int drafts;
+
+    private ResumeVersions[] stores;
+    private ResumeVersions growing;
+    private String[] alternating;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+
+        stores = new ResumeVersions[sessions];
+        long fullCopyBytes = 0;
+        for (int s = 0; s < sessions; s++) {
+            Random random = new Random(s);
+            stores[s] = new ResumeVersions();
+            List<String> lines = new ArrayList<>(Arrays.asList(baseResume(s).split("\n", -1)));
+            for (int d = 0; d < drafts; d++) {
+                if (d > 0) refine(lines, random, d);
+                String text = String.join("\n", lines);
+                stores[s].add(text);
+                fullCopyBytes += 40 + text.length(); // String + Latin-1 byte[] headers
+            }
+        }
+
+        System.gc();
+        long heapAfter = memory.getHeapMemoryUsage().getUsed();
+        long storeBytes = 0;
+        for (ResumeVersions store : stores) storeBytes += store.estimatedBytes();
+        System.out.printf("%nper session, %d drafts: %,d bytes in the version store (estimated), "
+                        + "%,d bytes as full copies, heap grew %,d bytes (including the latest drafts)%n",
+                drafts, storeBytes / sessions, fullCopyBytes / sessions, (heapAfter - heapBefore) / sessions);
+
+        List<String> lines = new ArrayList<>(Arrays.asList(baseResume(0).split("\n", -1)));
+        String first = String.join("\n", lines);
+        refine(lines, new Random(0), 1);
+        alternating = new String[] {first, String.join("\n", lines)};
+    }
+
+    @Setup(Level.Iteration)
+    public void newGrowingStore() {
+        growing = new ResumeVersions();
+        growing.add(alternating[0]);
+        next = 1;
+    }
+
+    private static String baseResume(int seed) {
+        StringBuilder b = new StringBuilder();
+        b.append("Candidate ").append(seed).append("\ncandidate").append(seed).append("@example.com | Kingston, ON\n\n");
+        b.append("SUMMARY\nBackend-minded CS student who ships reliable, well-tested services.\n\n");
+        b.append("EXPERIENCE\n");
+        for (int i = 0; i < 12; i++) {
+            b.append("- Built feature ").append(i).append(" of the export pipeline, cutting latency by ")
+                    .append(10 + i).append("% for 2,000 daily users.\n");
+        }
+        b.append("\nPROJECTS\n");
+        for (int i = 0; i < 8; i++) {
+            b.append("- Project ").append(i).append(": a Java and Gradle tool that automates resume formatting.\n");
+        }
+        b.append("\nSKILLS\nJava, Kotlin, SQL, Gradle, Docker, Git\n\nEDUCATION\nB.Sc. Computer Science, 2026\n");
+        return b.toString();
+    }
+
+    /** Rewords up to three lines and, every fifth draft, moves a section up to the top */
+    private static void refine(List<String> lines, Random random, int draft) {
+        for (int i = 0, n = 1 + random.nextInt(3); i < n; i++) {
+            int at;
+            do {
+                at = 3 + random.nextInt(lines.size() - 4);
+            } while (lines.get(at).isEmpty()); // blank lines keep the sections apart
+            lines.set(at, lines.get(at) + " Reworded in draft " + draft + ".");
+        }
+        if (draft % 5 == 0) {
+            // sections start after a blank line and run to the next one's start; the text ends with a blank line
+            List<Integer> starts = new ArrayList<>();
+            for (int i = 1; i < lines.size() - 1; i++) {
+                if (lines.get(i - 1).isEmpty()) starts.add(i);
+            }
+            int pick = 1 + random.nextInt(starts.size() - 1);
+            int end = pick + 1 < starts.size() ? starts.get(pick + 1) : lines.size();
+            List<String> moved = new ArrayList<>(lines.subList(starts.get(pick), end));
+            lines.subList(starts.get(pick), end).clear();
+            lines.addAll(starts.get(0), moved);
+        }
+    }
+
+    @Benchmark
+    public String latest() {
+        return stores[next++ % sessions].latest();
+    }
+
+    /** Version 16 sits fifteen deltas past the first checkpoint, the longest rebuild */
+    @Benchmark
+    public String rebuildWorstCase() {
+        return stores[next++ % sessions].get(Math.min(16, drafts - 1));
+    }
+
+    @Benchmark
+    public String rebuildFirstDraft() {
+        return stores[next++ % sessions].get(1);
+    }
+
+    @Benchmark
+    public int addDraft() {
+        return growing.add(alternating[next++ & 1]);
+    }
+}
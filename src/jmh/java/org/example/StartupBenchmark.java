@@ -0,0 +1,50 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold-JVM cost of the work Main now does behind the splash screen: building the engine,
+ * opening the connection (to the local stub) and loading the export classes and template.
+ * Each fork is a fresh JVM measured once, so class loading and JIT warm-up are included.
+ * Time to first frame itself needs a display; Main logs it as "First frame after N ms".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+
+    private GeminiStub stub;
+
+    @Setup
+    public void setUp() throws IOException {
+        stub = new GeminiStub(0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        stub.close();
+    }
+
+    /** Engine constructed and its connection open, as the first "Build" click needs it */
+    @Benchmark
+    public GeminiServer engineReady() throws Exception {
+        GeminiServer engine = StartupTasks.createEngine(new GeminiServer(GeminiStub.KEY_PATH,
+                GeminiServer.Mode.RESUME, GeminiServer.sharedHttpClient(), stub.generateUrl()));
+        engine.warmUp().join();
+        return engine;
+    }
+
+    /** Everything StartupTasks does before it reports the engine ready */
+    @Benchmark
+    public GeminiServer allBackgroundWork() throws Exception {
+        GeminiServer engine = engineReady();
+        StartupTasks.warmUpExport();
+        return engine;
+    }
+}
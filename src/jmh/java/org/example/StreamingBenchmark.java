@@ -0,0 +1,73 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time until the user sees the first text of a reply: the whole body for the blocking
+ * endpoint versus the first SSE delta for streamGenerateContent. The stub spreads its
+ * generation delay across the stream the way the real model does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamingBenchmark {
+
+    @Param({"200", "1000"})
+    public long generationMillis;
+
+    private GeminiStub stub;
+    private GeminiServer server;
+    private ExecutorService executor;
+    private CompletableFuture<String> inFlight;
+
+    @Setup
+    public void setUp() throws Exception {
+        stub = new GeminiStub(generationMillis);
+        server = new GeminiServer(GeminiStub.KEY_PATH, GeminiServer.Mode.REFINEMENT,
+                GeminiServer.sharedHttpClient(), stub.generateUrl());
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        stub.close();
+    }
+
+    /** Lets the rest of the previous stream drain outside the measured region */
+    @TearDown(Level.Invocation)
+    public void drain() {
+        if (inFlight != null) {
+            inFlight.join();
+            inFlight = null;
+        }
+    }
+
+    @Benchmark
+    public String blockingFirstText() throws Exception {
+        return server.sendUserMessage("Tighten the summary.");
+    }
+
+    @Benchmark
+    public String streamingFirstToken() {
+        CompletableFuture<String> firstToken = new CompletableFuture<>();
+        inFlight = CompletableFuture.supplyAsync(() -> {
+            try {
+                return server.sendUserMessageStreaming("Tighten the summary.", firstToken::complete);
+            } catch (Exception e) {
+                firstToken.completeExceptionally(e);
+                throw new CompletionException(e);
+            }
+        }, executor);
+        return firstToken.join();
+    }
+}
@@ -0,0 +1,37 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reply-to-document model cost: decoding a structured JSON reply versus scraping the
+ * same resume out of free text. Network time is left out; the output-token saving shows
+ * up in the stub-free generation time, not here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StructuredOutputBenchmark {
+
+    private final UserInfo user = new UserInfo();
+
+    @Setup
+    public void setUp() {
+        user.setName("Jane Doe");
+        user.setQuals("Java. Kotlin. SQL.");
+    }
+
+    @Benchmark
+    public ResumeDocument decodeJson() throws Exception {
+        return ResumeDocument.fromParsed(user, ResumeSchema.decode(GeminiStub.RESUME_JSON));
+    }
+
+    @Benchmark
+    public ResumeDocument parseText() {
+        return ResumeDocument.fromReply(user, GeminiStub.RESUME_TEXT);
+    }
+}
@@ -0,0 +1,82 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a file so readers only ever see the old version or the complete new one: the
+ * content goes to a temp file in the same directory through a buffered FileChannel, is
+ * forced to disk, and is then renamed over the target.
+ */
+public final class AtomicFiles {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    /** Produces the file content; the stream must not be closed by the writer */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private AtomicFiles() {}
+
+    public static Path write(Path target, ContentWriter content) throws IOException {
+        return replace(target, channel -> {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_BYTES);
+            content.writeTo(out);
+            out.flush();
+        });
+    }
+
+    /**
+     * Replaces target with its first keep bytes followed by tail, with the same guarantee.
+     * The kept bytes are copied file to file by the kernel, so only the tail passes through here.
+     */
+    public static Path replaceTail(Path target, long keep, byte[] tail) throws IOException {
+        return replace(target, channel -> {
+            try (FileChannel source = FileChannel.open(target, StandardOpenOption.READ)) {
+                if (source.size() < keep) throw new IOException(target + " is shorter than the part to keep");
+                long copied = 0;
+                while (copied < keep) copied += source.transferTo(copied, keep - copied, channel);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(tail);
+            while (buffer.hasRemaining()) channel.write(buffer);
+        });
+    }
+
+    /** Fills a temp file through fill, forces it and renames it over target */
+    private static Path replace(Path target, ChannelWriter fill) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(dir, "." + target.getFileName(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                         StandardOpenOption.TRUNCATE_EXISTING)) {
+                fill.writeTo(channel);
+                channel.force(false);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return target;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChannelWriter {
+        void writeTo(FileChannel channel) throws IOException;
+    }
+}
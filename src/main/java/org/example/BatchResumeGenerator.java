@@ -0,0 +1,297 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless bulk generation: reads UserInfo records from a CSV or JSONL file and runs each
+ * through prompt → Gemini → DOCX on a bounded pool of virtual threads, paced to the API
+ * quota. Finished records are appended to a checkpoint file so an interrupted run picks
+ * up where it stopped.
+ *
+ * <pre>
+ * java org.example.BatchResumeGenerator --input cohort.csv --out resumes/
+ *      [--parallel 8] [--rpm 60] [--checkpoint resumes/.checkpoint] [--api-url URL] [--structured true]
+ * </pre>
+ * With --structured (the default) Gemini answers in schema JSON that is exported as-is;
+ * --structured false asks for free text and parses its sections instead.
+ * CSV files need a header row naming the columns name,email,phone,cityState,about,quals.
+ * Record n is written to --out as nnnn_Name_AI_Resume.docx.
+ */
+public class BatchResumeGenerator {
+
+    private static final String API_KEY_PATH = "/org/example/API_KEY.txt";
+
+    private final GeminiServer engine;
+    private final int parallelism;
+    private final RateLimiter rateLimiter;
+    private final Path outputDir;
+    private final Path checkpointFile;
+    private final boolean structured;
+
+    private final List<Long> latenciesMillis = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    public BatchResumeGenerator(GeminiServer engine, int parallelism, int requestsPerMinute,
+                                Path outputDir, Path checkpointFile, boolean structured) {
+        this.engine = engine;
+        this.parallelism = parallelism;
+        this.rateLimiter = new RateLimiter(requestsPerMinute, Math.max(1, parallelism));
+        this.outputDir = outputDir;
+        this.checkpointFile = checkpointFile;
+        this.structured = structured;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parseArgs(args);
+        if (!opts.containsKey("input") || !opts.containsKey("out")) {
+            System.err.println("Usage: BatchResumeGenerator --input <file.csv|file.jsonl> --out <dir> "
+                    + "[--parallel N] [--rpm N] [--checkpoint file] [--api-url url] [--structured true|false]");
+            System.exit(2);
+        }
+
+        Path input = Path.of(opts.get("input"));
+        Path out = Path.of(opts.get("out"));
+        Files.createDirectories(out);
+        Path checkpoint = Path.of(opts.getOrDefault("checkpoint", out.resolve(".checkpoint").toString()));
+
+        GeminiServer engine = opts.containsKey("api-url")
+                ? new GeminiServer(API_KEY_PATH, GeminiServer.Mode.REFINEMENT,
+                        GeminiServer.sharedHttpClient(), opts.get("api-url"))
+                : new GeminiServer(API_KEY_PATH, GeminiServer.Mode.REFINEMENT);
+
+        BatchResumeGenerator batch = new BatchResumeGenerator(engine,
+                Integer.parseInt(opts.getOrDefault("parallel", "8")),
+                Integer.parseInt(opts.getOrDefault("rpm", "60")),
+                out, checkpoint, Boolean.parseBoolean(opts.getOrDefault("structured", "true")));
+        batch.run(readRecords(input));
+        System.exit(batch.failed.get() == 0 ? 0 : 1);
+    }
+
+    /** Processes every record not yet in the checkpoint and prints stats at the end */
+    public void run(List<UserInfo> records) throws IOException, InterruptedException {
+        Set<String> done = loadCheckpoint();
+        long start = System.nanoTime();
+
+        Semaphore slots = new Semaphore(parallelism);
+        // resources close in reverse, so the executor drains before the checkpoint closes
+        try (BufferedWriter checkpoint = Files.newBufferedWriter(checkpointFile, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < records.size(); i++) {
+                UserInfo user = records.get(i);
+                int index = i;
+                String key = recordKey(i, user);
+                if (done.contains(key)) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+                slots.acquire();
+                executor.submit(() -> {
+                    try {
+                        if (process(index, user)) {
+                            synchronized (checkpoint) {
+                                checkpoint.write(key);
+                                checkpoint.newLine();
+                                checkpoint.flush();
+                            }
+                        }
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        System.err.println("Failed " + user.getName() + ": " + e.getMessage());
+                    } finally {
+                        slots.release();
+                    }
+                    return null;
+                });
+            }
+        } // close() waits for in-flight records
+
+        printStats(System.nanoTime() - start);
+    }
+
+    /** One record through the pipeline; returns true once its DOCX is on disk */
+    private boolean process(int index, UserInfo user) throws InterruptedException {
+        rateLimiter.acquire();
+        String baseName = fileBaseName(index, user);
+        long t0 = System.nanoTime();
+
+        Session session = engine.createSession(GeminiServer.Mode.REFINEMENT);
+        try {
+            Path saved;
+            try {
+                saved = structured
+                        ? engine.exportResume(user, engine.sendForResume(session, user.toResumePrompt()), outputDir, baseName)
+                        : engine.exportResume(user, engine.sendUserMessage(session, user.toResumePrompt()), outputDir, baseName);
+            } catch (IOException e) {
+                // retries are already exhausted inside the transport
+                failed.incrementAndGet();
+                System.err.println("No resume for " + user.getName() + ": " + e.getMessage());
+                return false;
+            }
+            if (saved == null) {
+                failed.incrementAndGet();
+                return false;
+            }
+        } finally {
+            engine.closeSession(session.getId());
+        }
+
+        latenciesMillis.add((System.nanoTime() - t0) / 1_000_000);
+        succeeded.incrementAndGet();
+        return true;
+    }
+
+    /** Record number first, so people with the same name or no name still get a file each */
+    static String fileBaseName(int index, UserInfo user) {
+        return String.format("%04d_%s", index + 1, GeminiServer.fileBaseName(user));
+    }
+
+    private void printStats(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        List<Long> sorted;
+        synchronized (latenciesMillis) {
+            sorted = new ArrayList<>(latenciesMillis);
+        }
+        Collections.sort(sorted);
+        System.out.printf("Batch finished in %.1f s: %d succeeded, %d failed, %d skipped (checkpoint)%n",
+                seconds, succeeded.get(), failed.get(), skipped.get());
+        System.out.printf("Throughput: %.2f resumes/s%n", succeeded.get() / Math.max(seconds, 1e-9));
+        if (!sorted.isEmpty()) {
+            System.out.printf("Latency ms: p50=%d p95=%d p99=%d max=%d%n",
+                    percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                    sorted.get(sorted.size() - 1));
+        }
+    }
+
+    static long percentile(List<Long> sorted, double p) {
+        int index = (int) Math.ceil(p / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+    }
+
+    public int getSucceeded() { return succeeded.get(); }
+    public int getFailed() { return failed.get(); }
+
+    // ===== CHECKPOINT =====
+
+    private Set<String> loadCheckpoint() throws IOException {
+        if (!Files.exists(checkpointFile)) return new HashSet<>();
+        return new HashSet<>(Files.readAllLines(checkpointFile, StandardCharsets.UTF_8));
+    }
+
+    /** Position plus identity, so an edited input file does not skip the wrong people */
+    private static String recordKey(int index, UserInfo user) {
+        return index + ":" + ResponseCache.key(user.getName(), user.getEmail()).substring(0, 16);
+    }
+
+    // ===== INPUT =====
+
+    public static List<UserInfo> readRecords(Path input) throws IOException {
+        List<String> lines = Files.readAllLines(input, StandardCharsets.UTF_8);
+        return input.toString().toLowerCase().endsWith(".csv") ? parseCsv(lines) : parseJsonLines(lines);
+    }
+
+    static List<UserInfo> parseJsonLines(List<String> lines) {
+        Gson gson = new Gson();
+        List<UserInfo> records = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty()) continue;
+            try {
+                records.add(normalize(gson.fromJson(line, UserInfo.class)));
+            } catch (JsonParseException e) {
+                System.err.println("Skipping line " + (i + 1) + ": " + e.getMessage());
+            }
+        }
+        return records;
+    }
+
+    /** Fields missing from a JSON record come back null from Gson; UserInfo expects "" */
+    static UserInfo normalize(UserInfo user) {
+        UserInfo clean = new UserInfo();
+        clean.setName(Objects.toString(user.getName(), ""));
+        clean.setEmail(Objects.toString(user.getEmail(), ""));
+        clean.setPhone(Objects.toString(user.getPhone(), ""));
+        clean.setCityState(Objects.toString(user.getCityState(), ""));
+        clean.setAbout(Objects.toString(user.getAbout(), ""));
+        clean.setQuals(Objects.toString(user.getQuals(), ""));
+        return clean;
+    }
+
+    static List<UserInfo> parseCsv(List<String> lines) {
+        List<UserInfo> records = new ArrayList<>();
+        if (lines.isEmpty()) return records;
+        List<String> header = splitCsvLine(lines.get(0));
+        for (int i = 1; i < lines.size(); i++) {
+            if (lines.get(i).isBlank()) continue;
+            List<String> cells = splitCsvLine(lines.get(i));
+            UserInfo user = new UserInfo();
+            for (int c = 0; c < header.size() && c < cells.size(); c++) {
+                String value = cells.get(c).trim();
+                switch (header.get(c).trim().toLowerCase()) {
+                    case "name" -> user.setName(value);
+                    case "email" -> user.setEmail(value);
+                    case "phone" -> user.setPhone(value);
+                    case "citystate", "city_state", "city/state" -> user.setCityState(value);
+                    case "about" -> user.setAbout(value);
+                    case "quals", "qualifications" -> user.setQuals(value);
+                    default -> { } // unknown columns are ignored
+                }
+            }
+            records.add(user);
+        }
+        return records;
+    }
+
+    /** RFC 4180 style: commas inside double quotes, "" for a literal quote */
+    static List<String> splitCsvLine(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (ch == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(ch);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            opts.put(args[i].substring(2), args[i + 1]);
+        }
+        return opts;
+    }
+}
@@ -0,0 +1,16 @@
+package org.example;
+
+/**
+ * One conversation turn. The JSON "content" object for the turn is encoded once when the
+ * message is created and reused by every later request that includes it.
+ */
+public record ChatMessage(String role, String text, byte[] encoded) {
+
+    public static ChatMessage of(String role, String text) {
+        return new ChatMessage(role, text, RequestBodyEncoder.encodeContent(role, text));
+    }
+
+    public boolean isUser() {
+        return "user".equals(role);
+    }
+}
@@ -0,0 +1,171 @@
+package org.example;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.HBox;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The chat transcript: a ListView over a list of messages, so only the rows on screen have
+ * nodes however long the session runs. Messages can be added and streamed into from any
+ * thread; changes are queued and applied together with a single runLater per pulse. Bubble
+ * looks come from the chat-* classes in style.css, and the oldest messages are dropped past
+ * -Dgemini.ui.maxMessages (default 2000).
+ */
+public class ChatTranscript {
+
+    public static final int DEFAULT_MAX_MESSAGES = Integer.getInteger("gemini.ui.maxMessages", 2000);
+
+    /** One bubble; the transcript owns its text */
+    public static final class Message {
+        private final boolean user;
+        private final StringBuilder latest; // guarded by the transcript
+        private String shown;               // FX thread only
+
+        private Message(String text, boolean user) {
+            this.user = user;
+            this.latest = new StringBuilder(text);
+            this.shown = text;
+        }
+
+        public boolean isUser() {
+            return user;
+        }
+
+        /** The text currently on screen */
+        public String getText() {
+            return shown;
+        }
+    }
+
+    private final ObservableList<Message> items = FXCollections.observableArrayList();
+    private final ListView<Message> view = new ListView<>(items);
+    private final int maxMessages;
+
+    private final List<Message> added = new ArrayList<>();
+    private final Set<Message> changed = new LinkedHashSet<>();
+    private boolean scheduled;
+    private long scheduledNanos;
+
+    private static final LatencyRecorder DISPATCH_TIME = Metrics.shared().latency(Metrics.UI_DISPATCH);
+
+    public ChatTranscript() {
+        this(DEFAULT_MAX_MESSAGES);
+    }
+
+    public ChatTranscript(int maxMessages) {
+        this.maxMessages = Math.max(1, maxMessages);
+        view.getStyleClass().add("chat-transcript");
+        view.setFocusTraversable(false);
+        view.setCellFactory(list -> new BubbleCell(list));
+    }
+
+    public ListView<Message> getView() {
+        return view;
+    }
+
+    /** Queues a new bubble at the bottom; safe from any thread */
+    public Message add(String text, boolean isUser) {
+        Message message = new Message(text, isUser);
+        synchronized (this) {
+            added.add(message);
+            schedule();
+        }
+        return message;
+    }
+
+    /** Appends streamed text to a bubble; safe from any thread */
+    public synchronized void append(Message message, String delta) {
+        message.latest.append(delta);
+        changed.add(message);
+        schedule();
+    }
+
+    /** Replaces a bubble's text; safe from any thread */
+    public synchronized void setText(Message message, String text) {
+        message.latest.setLength(0);
+        message.latest.append(text);
+        changed.add(message);
+        schedule();
+    }
+
+    private void schedule() {
+        if (!scheduled) {
+            scheduled = true;
+            scheduledNanos = System.nanoTime();
+            Platform.runLater(this::flush);
+        }
+    }
+
+    /** Applies everything queued since the last pulse in one go */
+    private void flush() {
+        List<Message> toAdd;
+        List<Message> toRefresh = new ArrayList<>();
+        synchronized (this) {
+            toAdd = new ArrayList<>(added);
+            added.clear();
+            for (Message message : changed) {
+                message.shown = message.latest.toString();
+                if (!toAdd.contains(message)) toRefresh.add(message);
+            }
+            changed.clear();
+            scheduled = false;
+            // time from the first queued change to the pulse that shows it
+            DISPATCH_TIME.recordSince(scheduledNanos);
+        }
+
+        boolean lastChanged = false;
+        for (Message message : toRefresh) {
+            // updates are nearly always to the newest bubbles, so search from the end
+            for (int i = items.size() - 1; i >= 0; i--) {
+                if (items.get(i) == message) {
+                    items.set(i, message); // re-renders just that cell, if it is on screen
+                    lastChanged |= i == items.size() - 1;
+                    break;
+                }
+            }
+        }
+        if (!toAdd.isEmpty()) {
+            items.addAll(toAdd);
+            if (items.size() > maxMessages) items.remove(0, items.size() - maxMessages);
+        }
+        if (!toAdd.isEmpty() || lastChanged) view.scrollTo(items.size() - 1);
+    }
+
+    /** Reused row: one label in an HBox that aligns it left or right */
+    private static final class BubbleCell extends ListCell<Message> {
+        private final Label bubble = new Label();
+        private final HBox row = new HBox(bubble);
+
+        BubbleCell(ListView<Message> list) {
+            bubble.setWrapText(true);
+            bubble.getStyleClass().add("chat-bubble");
+            bubble.maxWidthProperty().bind(list.widthProperty().multiply(0.7));
+            row.getStyleClass().add("chat-row");
+            getStyleClass().add("chat-cell");
+        }
+
+        @Override
+        protected void updateItem(Message message, boolean empty) {
+            super.updateItem(message, empty);
+            if (empty || message == null) {
+                setGraphic(null);
+                return;
+            }
+            bubble.setText(message.shown);
+            bubble.getStyleClass().removeAll("chat-user", "chat-ai");
+            bubble.getStyleClass().add(message.user ? "chat-user" : "chat-ai");
+            row.setAlignment(message.user ? Pos.CENTER_RIGHT : Pos.CENTER_LEFT);
+            setGraphic(row);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.example;
+
+/**
+ * Stops calling the API after a run of consecutive failures. While open, calls fail fast;
+ * after the cool-down one trial call is let through (half-open) and its outcome decides
+ * whether the circuit closes again.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtMillis;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /** Returns whether a call may proceed now */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAtMillis >= openMillis) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            default:
+                return false; // a trial call is already out
+        }
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAtMillis = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Ends a call that neither succeeded nor failed, e.g. one interrupted before it was sent.
+     * If it was the half-open trial, the circuit goes back to open with the wait already over,
+     * so the next call becomes the trial instead of every call failing fast for good.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+            openedAtMillis = System.currentTimeMillis() - openMillis;
+        }
+    }
+
+    /** Milliseconds until a trial call is allowed, 0 if calls are allowed now */
+    public synchronized long remainingOpenMillis() {
+        return state == State.OPEN ? Math.max(0, openMillis - (System.currentTimeMillis() - openedAtMillis)) : 0;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
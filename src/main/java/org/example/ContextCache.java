@@ -0,0 +1,290 @@
+package org.example;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Server-side context caching (Gemini's cachedContents API) for the part of every request
+ * that never changes: the mode's system instruction and, once there is one, the pinned
+ * original resume. Each distinct prefix is uploaded once, refreshed in the background before
+ * its TTL runs out, and referenced by name from later requests, which then carry only the
+ * turns after it.
+ *
+ * <p>Gemini refuses to cache fewer than about 1024 tokens, so smaller prefixes are sent
+ * inline as before; a failed upload is not retried for a while. Tunable with
+ * -Dgemini.contextCache (on by default), -Dgemini.contextCache.ttlSeconds,
+ * -Dgemini.contextCache.minTokens and -Dgemini.contextCache.pinResume. Pinning is off by
+ * default: every session's resume differs, so each session would get a context of its own,
+ * stored and refreshed at a cost for as long as the session lives.
+ */
+public class ContextCache {
+
+    /** How GeminiServer's transport is reached; only 2xx responses come back */
+    @FunctionalInterface
+    public interface Sender {
+        HttpResponse<InputStream> send(HttpRequest request, int estimatedTokens) throws IOException, InterruptedException;
+    }
+
+    /** A cached context and how many of the conversation's leading turns it already holds */
+    public record Context(String name, int turns) { }
+
+    private static final int MAX_CONTEXTS = 256;
+    private static final long FAILURE_BACKOFF_MILLIS = Duration.ofMinutes(10).toMillis();
+
+    private static final LongAdder HITS = Metrics.shared().counter(Metrics.CONTEXT_HITS);
+    private static final LongAdder CREATED = Metrics.shared().counter(Metrics.CONTEXT_CREATED);
+    private static final LongAdder REFRESHED = Metrics.shared().counter(Metrics.CONTEXT_REFRESHED);
+    private static final LongAdder FAILURES = Metrics.shared().counter(Metrics.CONTEXT_FAILURES);
+
+    /**
+     * One prefix, guarded by its own lock so uploads of different prefixes do not wait on each
+     * other; a lock rather than a monitor, so a virtual thread blocked on the upload unmounts.
+     */
+    private static final class Slot {
+        final ReentrantLock lock = new ReentrantLock();
+        String name;
+        long expiresAtMillis;
+        long retryAtMillis;
+        boolean refreshing;
+    }
+
+    private final Sender sender;
+    private final String apiKey;
+    private final String model;
+    private final String cachedContentsUrl;
+    private final String generateUrl;
+    private final String streamGenerateUrl;
+    private final long ttlSeconds;
+    private final int minTokens;
+    private final boolean pinResume;
+
+    private final Map<String, Slot> slots = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Slot> eldest) {
+            return size() > MAX_CONTEXTS; // the server forgets it once its TTL runs out
+        }
+    });
+
+    /**
+     * @param apiUrl the generateContent URL the engine uses, e.g. .../v1/models/gemini-2.5-flash:generateContent;
+     *               cachedContents only exists on v1beta, so requests that use a context go there
+     */
+    public ContextCache(Sender sender, String apiKey, String apiUrl, Duration ttl, int minTokens, boolean pinResume) {
+        if (!supports(apiUrl)) throw new IllegalArgumentException("No /{version}/models/ in " + apiUrl);
+        this.sender = sender;
+        this.apiKey = apiKey;
+        int models = apiUrl.indexOf("/models/");
+        int versionStart = apiUrl.lastIndexOf('/', models - 1);
+        int colon = apiUrl.indexOf(':', models);
+        String root = apiUrl.substring(0, versionStart) + "/v1beta";
+        this.model = apiUrl.substring(models + 1, colon < 0 ? apiUrl.length() : colon);
+        this.cachedContentsUrl = root + "/cachedContents";
+        this.generateUrl = root + apiUrl.substring(models);
+        this.streamGenerateUrl = generateUrl.replace(":generateContent", ":streamGenerateContent");
+        this.ttlSeconds = Math.max(60, ttl.toSeconds());
+        this.minTokens = minTokens;
+        this.pinResume = pinResume;
+    }
+
+    /** Settings from the -Dgemini.contextCache.* properties, or null when turned off or apiUrl has no cachedContents */
+    public static ContextCache withDefaults(Sender sender, String apiKey, String apiUrl) {
+        if (!Boolean.parseBoolean(System.getProperty("gemini.contextCache", "true"))) return null;
+        if (!supports(apiUrl)) {
+            System.err.println("Context caching off, " + apiUrl + " is not a .../{version}/models/{model} URL");
+            return null;
+        }
+        return new ContextCache(sender, apiKey, apiUrl,
+                Duration.ofSeconds(Long.getLong("gemini.contextCache.ttlSeconds", 3600)),
+                Integer.getInteger("gemini.contextCache.minTokens", 1024),
+                Boolean.parseBoolean(System.getProperty("gemini.contextCache.pinResume", "false")));
+    }
+
+    /** Whether the cachedContents URLs can be derived from apiUrl: a version path segment, then /models/ */
+    static boolean supports(String apiUrl) {
+        int models = apiUrl.indexOf("/models/");
+        int scheme = apiUrl.indexOf("://");
+        int hostEnd = apiUrl.indexOf('/', scheme < 0 ? 0 : scheme + 3);
+        return models > 0 && hostEnd >= 0 && hostEnd < models;
+    }
+
+    /** The generateContent URL for requests that reference a context */
+    public String getGenerateUrl() {
+        return generateUrl;
+    }
+
+    public String getStreamGenerateUrl() {
+        return streamGenerateUrl;
+    }
+
+    /**
+     * The context to use for a request starting with systemContent and the pinned turns, or
+     * null to send everything inline. Prefers the prefix with the pinned resume in it.
+     * Called under the session lock, so it may block on an upload.
+     */
+    public Context contextFor(byte[] systemContent, List<ChatMessage> pinned) throws InterruptedException {
+        if (pinResume && !pinned.isEmpty()) {
+            List<byte[]> prefix = new ArrayList<>(pinned.size() + 1);
+            if (systemContent != null) prefix.add(systemContent);
+            for (ChatMessage message : pinned) prefix.add(message.encoded());
+            String name = nameFor(prefix);
+            if (name != null) return new Context(name, pinned.size());
+        }
+        if (systemContent == null) return null;
+        String name = nameFor(List.of(systemContent));
+        return name != null ? new Context(name, 0) : null;
+    }
+
+    /** Forgets a context the server no longer knows, so the next request uploads it again */
+    public void invalidate(Context context) {
+        synchronized (slots) {
+            slots.values().removeIf(slot -> context.name().equals(slot.name));
+        }
+    }
+
+    /** Whether a failed request that referenced a context failed because of it */
+    public static boolean isStale(GeminiApiException e) {
+        int status = e.getStatusCode();
+        return (status == 400 || status == 403 || status == 404)
+                && String.valueOf(e.getMessage()).toLowerCase().contains("cache");
+    }
+
+    private String nameFor(List<byte[]> prefix) throws InterruptedException {
+        int tokens = estimateTokens(prefix);
+        if (tokens < minTokens) return null;
+        Slot slot = slots.computeIfAbsent(ResponseCache.key(model, prefix), k -> new Slot());
+        slot.lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            if (slot.name != null && now < slot.expiresAtMillis) {
+                // refresh early, off this turn, once less than a fifth of the TTL is left
+                if (!slot.refreshing && slot.expiresAtMillis - now < ttlSeconds * 200) {
+                    slot.refreshing = true;
+                    Thread.ofVirtual().name("context-refresh").start(() -> refresh(slot));
+                }
+                HITS.increment();
+                return slot.name;
+            }
+            if (now < slot.retryAtMillis) return null;
+            try {
+                JsonObject created = call(HttpRequest.newBuilder(URI.create(cachedContentsUrl + "?key=" + apiKey))
+                        .header("Content-Type", "application/json")
+                        .POST(RequestBodyEncoder.publisher(createBody(prefix)))
+                        .build(), tokens);
+                slot.name = created.get("name").getAsString();
+                slot.expiresAtMillis = expiry(created);
+                CREATED.increment();
+                HITS.increment();
+                return slot.name;
+            } catch (IOException | RuntimeException e) {
+                FAILURES.increment();
+                slot.name = null;
+                slot.retryAtMillis = now + FAILURE_BACKOFF_MILLIS;
+                System.err.println("Context caching unavailable, sending it inline: " + e.getMessage());
+                return null;
+            }
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    /** Pushes the expiry out by another TTL; on failure the context simply lapses and is uploaded again */
+    private void refresh(Slot slot) {
+        String name;
+        slot.lock.lock();
+        try {
+            name = slot.name;
+        } finally {
+            slot.lock.unlock();
+        }
+        try {
+            if (name == null) return;
+            byte[] body = ("{\"ttl\":\"" + ttlSeconds + "s\"}").getBytes(StandardCharsets.UTF_8);
+            JsonObject updated = call(HttpRequest.newBuilder(
+                            URI.create(cachedContentsUrl + name.substring(name.indexOf('/')) + "?updateMask=ttl&key=" + apiKey))
+                    .header("Content-Type", "application/json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofByteArray(body))
+                    .build(), 0);
+            slot.lock.lock();
+            try {
+                if (name.equals(slot.name)) slot.expiresAtMillis = expiry(updated);
+            } finally {
+                slot.lock.unlock();
+            }
+            REFRESHED.increment();
+        } catch (IOException | RuntimeException e) {
+            FAILURES.increment();
+            System.err.println("Could not refresh context " + name + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            slot.lock.lock();
+            slot.refreshing = false;
+            slot.lock.unlock();
+        }
+    }
+
+    private JsonObject call(HttpRequest request, int estimatedTokens) throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = sender.send(request, estimatedTokens);
+        try (InputStreamReader body = new InputStreamReader(response.body(), StandardCharsets.UTF_8)) {
+            return JsonParser.parseReader(body).getAsJsonObject();
+        }
+    }
+
+    /** The server's expireTime, or a full TTL from now if it sent none */
+    private long expiry(JsonObject response) {
+        long fallback = System.currentTimeMillis() + ttlSeconds * 1000;
+        if (!response.has("expireTime")) return fallback;
+        try {
+            return Instant.parse(response.get("expireTime").getAsString()).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return fallback;
+        }
+    }
+
+    /** {"model":...,"ttl":"Ns","contents":[prefix...]}, reusing the turns' encodings */
+    private List<byte[]> createBody(List<byte[]> prefix) {
+        ByteArrayOutputStream head = new ByteArrayOutputStream(96);
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(head, StandardCharsets.UTF_8))) {
+            writer.beginObject().name("model").value(model).name("ttl").value(ttlSeconds + "s").endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory stream, cannot happen
+        }
+        byte[] headBytes = head.toByteArray();
+        List<byte[]> body = new ArrayList<>(prefix.size() * 2 + 2);
+        // drop the closing brace so the contents array can follow
+        body.add((new String(headBytes, 0, headBytes.length - 1, StandardCharsets.UTF_8) + ",\"contents\":[")
+                .getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < prefix.size(); i++) {
+            if (i > 0) body.add(new byte[] {','});
+            body.add(prefix.get(i));
+        }
+        body.add(new byte[] {']', '}'});
+        return body;
+    }
+
+    private static int estimateTokens(List<byte[]> chunks) {
+        return (int) Math.min(Integer.MAX_VALUE, RequestBodyEncoder.length(chunks) / 4);
+    }
+}
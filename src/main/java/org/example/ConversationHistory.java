@@ -0,0 +1,231 @@
+package org.example;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Conversation turns kept within an approximate token budget.
+ * <ul>
+ *   <li>recent turns live in a fixed-capacity ring buffer, so adding and evicting are O(1)</li>
+ *   <li>pinned turns (by default the first generated resume) are never evicted</li>
+ *   <li>turns pushed out by the budget are folded into one short summary turn instead of
+ *       disappearing, so the model still knows what was asked earlier</li>
+ * </ul>
+ * Not thread-safe; the owner serializes access.
+ */
+public class ConversationHistory {
+
+    private static final int MAX_SUMMARY_NOTES = 12;
+    private static final int NOTE_CHARS = 140;
+
+    private final int tokenBudget;
+    private final ChatMessage[] ring;
+    private final int[] ringTokens;
+    private int head; // index of the oldest turn
+    private int size;
+    private int ringTokenTotal;
+
+    private final List<ChatMessage> pinned = new ArrayList<>();
+    private int pinnedTokens;
+    private boolean pinFirstReply = true;
+
+    private final Deque<String> summaryNotes = new ArrayDeque<>();
+    private ChatMessage summary;
+    private int summaryTokens;
+
+    public ConversationHistory(int tokenBudget, int maxTurns) {
+        if (tokenBudget < 1 || maxTurns < 2) {
+            throw new IllegalArgumentException("history needs a positive budget and room for a turn pair");
+        }
+        this.tokenBudget = tokenBudget;
+        this.ring = new ChatMessage[maxTurns];
+        this.ringTokens = new int[maxTurns];
+    }
+
+    /** Budget and capacity from -Dgemini.history.tokenBudget / -Dgemini.history.maxTurns */
+    public static ConversationHistory withDefaults() {
+        return new ConversationHistory(
+                Integer.getInteger("gemini.history.tokenBudget", 8_000),
+                Integer.getInteger("gemini.history.maxTurns", 64));
+    }
+
+    /** Rough local token count: about four characters per token plus per-turn overhead */
+    public static int estimateTokens(String text) {
+        return (text.length() + 3) / 4 + 4;
+    }
+
+    public void addUser(String text) {
+        append(ChatMessage.of("user", text));
+    }
+
+    /**
+     * Adds a model turn. The first successful reply is pinned together with the request that
+     * produced it, since it is the original resume that later refinements build on.
+     */
+    public void addModel(String text, boolean ok) {
+        ChatMessage msg = ChatMessage.of("model", text);
+        if (ok && pinFirstReply) {
+            pinFirstReply = false;
+            if (size > 0 && newest().isUser()) {
+                pin(removeNewest());
+            }
+            pin(msg);
+            return;
+        }
+        append(msg);
+    }
+
+    /** Takes back a request whose call failed, so the next request doesn't carry it unanswered */
+    public void undoLastUser() {
+        if (size > 0 && newest().isUser()) {
+            removeNewest();
+        }
+    }
+
+    /** Keeps a turn in every request regardless of the budget */
+    public void pin(ChatMessage msg) {
+        pinned.add(msg);
+        pinnedTokens += estimateTokens(msg.text());
+        enforceBudget();
+    }
+
+    /** The pinned turns alone; always the start of messages() */
+    public List<ChatMessage> pinned() {
+        return List.copyOf(pinned);
+    }
+
+    /** Turns in request order: pinned, summary of evicted turns, then recent turns */
+    public List<ChatMessage> messages() {
+        List<ChatMessage> out = new ArrayList<>(pinned.size() + 1 + size);
+        out.addAll(pinned);
+        if (summary != null) out.add(summary);
+        for (int i = 0; i < size; i++) {
+            out.add(ring[(head + i) % ring.length]);
+        }
+        return out;
+    }
+
+    public int estimatedTokens() {
+        return pinnedTokens + summaryTokens + ringTokenTotal;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Everything that decides the requests this history produces, for the session journal */
+    public record State(boolean pinFirstReply, List<ChatMessage> pinned, List<String> summaryNotes,
+                        List<ChatMessage> recent) { }
+
+    public State state() {
+        List<ChatMessage> recent = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            recent.add(ring[(head + i) % ring.length]);
+        }
+        return new State(pinFirstReply, List.copyOf(pinned), List.copyOf(summaryNotes), recent);
+    }
+
+    /** Replaces this history with a saved state; the reverse of state() */
+    public void restore(State state) {
+        clear();
+        pinFirstReply = state.pinFirstReply();
+        for (ChatMessage msg : state.pinned()) {
+            pinned.add(msg);
+            pinnedTokens += estimateTokens(msg.text());
+        }
+        summaryNotes.addAll(state.summaryNotes());
+        rebuildSummary();
+        for (ChatMessage msg : state.recent()) {
+            append(msg);
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < ring.length; i++) ring[i] = null;
+        head = size = ringTokenTotal = 0;
+        pinned.clear();
+        pinnedTokens = 0;
+        pinFirstReply = true;
+        summaryNotes.clear();
+        summary = null;
+        summaryTokens = 0;
+    }
+
+    private void append(ChatMessage msg) {
+        if (size == ring.length) {
+            evictOldest();
+        }
+        int slot = (head + size) % ring.length;
+        ring[slot] = msg;
+        ringTokens[slot] = estimateTokens(msg.text());
+        ringTokenTotal += ringTokens[slot];
+        size++;
+        enforceBudget();
+    }
+
+    private ChatMessage newest() {
+        return ring[(head + size - 1) % ring.length];
+    }
+
+    private ChatMessage removeNewest() {
+        int slot = (head + size - 1) % ring.length;
+        ChatMessage msg = ring[slot];
+        ring[slot] = null;
+        ringTokenTotal -= ringTokens[slot];
+        size--;
+        return msg;
+    }
+
+    /** Always keeps the newest turn, even if it alone exceeds the budget */
+    private void enforceBudget() {
+        while (size > 1 && estimatedTokens() > tokenBudget) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        ChatMessage old = ring[head];
+        ringTokenTotal -= ringTokens[head];
+        ring[head] = null;
+        head = (head + 1) % ring.length;
+        size--;
+
+        if (old.isUser()) {
+            summaryNotes.addLast(note(old.text()));
+            if (summaryNotes.size() > MAX_SUMMARY_NOTES) summaryNotes.removeFirst();
+            rebuildSummary();
+        }
+        // model turns are earlier drafts; the pinned resume and newer drafts supersede them
+    }
+
+    private void rebuildSummary() {
+        if (summaryNotes.isEmpty()) {
+            summary = null;
+            summaryTokens = 0;
+            return;
+        }
+        StringBuilder sb = new StringBuilder("Summary of earlier requests in this conversation (already applied):");
+        for (String note : summaryNotes) {
+            sb.append("\n- ").append(note);
+        }
+        summary = ChatMessage.of("user", sb.toString());
+        summaryTokens = estimateTokens(summary.text());
+    }
+
+    /** First sentence or line of a request, clipped */
+    private static String note(String text) {
+        String t = text.strip();
+        int end = t.length();
+        for (int i = 0; i < t.length(); i++) {
+            char c = t.charAt(i);
+            if (c == '\n' || (c == '.' || c == '?' || c == '!') && i > 20) {
+                end = c == '\n' ? i : i + 1;
+                break;
+            }
+        }
+        end = Math.min(end, NOTE_CHARS);
+        return end < t.length() ? t.substring(0, end).strip() + (end == NOTE_CHARS ? "..." : "") : t;
+    }
+}
@@ -0,0 +1,16 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** Writes a ResumeDocument as a .docx */
+public interface DocxRenderer {
+
+    void write(ResumeDocument resume, OutputStream out) throws IOException;
+
+    /** The compiled template when it is bundled, otherwise the XWPF renderer */
+    static DocxRenderer defaultRenderer() {
+        DocxTemplate template = DocxTemplate.resume();
+        return template != null ? template : XwpfDocxRenderer.INSTANCE;
+    }
+}
@@ -0,0 +1,276 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A .docx file compiled once into something that can be filled thousands of times a second.
+ * Every part except word/document.xml (styles, numbering, fonts, rels, ...) is kept as raw
+ * bytes with its CRC and copied into each output untouched. document.xml is split into
+ * literal byte runs, {{slot}} references and {{#loop}}...{{/loop}} blocks, so rendering is
+ * concatenation plus XML escaping with no XML parsing or XWPF object model.
+ *
+ * <p>Slots must sit inside a single {@code <w:t xml:space="preserve">}; loop markers must be
+ * alone in their own paragraph, which is dropped from the output. Inside a loop over strings
+ * {@code {{.}}} is the current item.
+ */
+public class DocxTemplate implements DocxRenderer {
+
+    public static final String RESUME_TEMPLATE = "/org/example/templates/resume-template.docx";
+
+    private static final String BODY_PART = "word/document.xml";
+    // a whole paragraph holding a loop marker, or an inline slot
+    private static final Pattern TOKEN = Pattern.compile(
+            "<w:p[ >](?:(?!</w:p>).)*?\\{\\{([#/])([\\w.]+)}}(?:(?!</w:p>).)*?</w:p>|\\{\\{([\\w.]+)}}",
+            Pattern.DOTALL);
+    private static final String LINE_BREAK = "</w:t><w:br/><w:t xml:space=\"preserve\">";
+
+    private sealed interface Node permits Literal, Slot, Loop { }
+    private record Literal(byte[] bytes) implements Node { }
+    private record Slot(String name) implements Node { }
+    private record Loop(String name, List<Node> body) implements Node { }
+
+    /** A part copied verbatim; stored uncompressed so no output ever deflates it again */
+    record StaticPart(String name, byte[] bytes, long crc) { }
+
+    private final List<StaticPart> partsBefore = new ArrayList<>();
+    private final List<StaticPart> partsAfter = new ArrayList<>();
+    private final List<Node> body;
+
+    private DocxTemplate(InputStream docx) throws IOException {
+        String documentXml = null;
+        try (ZipInputStream zip = new ZipInputStream(docx)) {
+            for (ZipEntry entry; (entry = zip.getNextEntry()) != null; ) {
+                byte[] bytes = zip.readAllBytes();
+                if (entry.getName().equals(BODY_PART)) {
+                    documentXml = new String(bytes, StandardCharsets.UTF_8);
+                } else {
+                    CRC32 crc = new CRC32();
+                    crc.update(bytes);
+                    (documentXml == null ? partsBefore : partsAfter)
+                            .add(new StaticPart(entry.getName(), bytes, crc.getValue()));
+                }
+            }
+        }
+        if (documentXml == null) {
+            throw new IOException("Template has no " + BODY_PART);
+        }
+        body = compile(documentXml);
+    }
+
+    public static DocxTemplate load(InputStream docx) throws IOException {
+        return new DocxTemplate(docx);
+    }
+
+    private static final class ResumeHolder {
+        static final DocxTemplate INSTANCE = loadResource(RESUME_TEMPLATE);
+    }
+
+    /** The bundled resume template, compiled on first use; null if the resource is missing or broken */
+    public static DocxTemplate resume() {
+        return ResumeHolder.INSTANCE;
+    }
+
+    private static DocxTemplate loadResource(String path) {
+        try (InputStream in = DocxTemplate.class.getResourceAsStream(path)) {
+            if (in == null) {
+                System.err.println("DOCX template not found: " + path);
+                return null;
+            }
+            return load(in);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // ===== COMPILE =====
+
+    private static List<Node> compile(String xml) throws IOException {
+        Deque<Loop> open = new ArrayDeque<>();
+        Deque<List<Node>> targets = new ArrayDeque<>();
+        List<Node> root = new ArrayList<>();
+        targets.push(root);
+
+        Matcher m = TOKEN.matcher(xml);
+        int last = 0;
+        while (m.find()) {
+            addLiteral(targets.peek(), xml.substring(last, m.start()));
+            last = m.end();
+            if (m.group(3) != null) {
+                targets.peek().add(new Slot(m.group(3)));
+            } else if (m.group(1).equals("#")) {
+                Loop loop = new Loop(m.group(2), new ArrayList<>());
+                targets.peek().add(loop);
+                open.push(loop);
+                targets.push(loop.body());
+            } else {
+                if (open.isEmpty() || !open.peek().name().equals(m.group(2))) {
+                    throw new IOException("Unbalanced {{/" + m.group(2) + "}} in template");
+                }
+                open.pop();
+                targets.pop();
+            }
+        }
+        if (!open.isEmpty()) {
+            throw new IOException("Unclosed {{#" + open.peek().name() + "}} in template");
+        }
+        addLiteral(root, xml.substring(last));
+        return root;
+    }
+
+    private static void addLiteral(List<Node> target, String text) {
+        if (!text.isEmpty()) target.add(new Literal(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // ===== RENDER =====
+
+    @Override
+    public void write(ResumeDocument resume, OutputStream out) throws IOException {
+        render(resume.toSlots(), out);
+    }
+
+    /** Writes a complete .docx for the given slot values; values are a String or a List of Maps/Strings */
+    public void render(Map<String, ?> slots, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.setLevel(Deflater.BEST_SPEED);
+        for (StaticPart part : partsBefore) writeStored(zip, part);
+
+        zip.putNextEntry(new ZipEntry(BODY_PART));
+        Deque<Object> scopes = new ArrayDeque<>();
+        scopes.push(slots);
+        renderNodes(body, scopes, zip);
+        zip.closeEntry();
+
+        for (StaticPart part : partsAfter) writeStored(zip, part);
+        zip.finish();
+    }
+
+    public byte[] render(Map<String, ?> slots) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        render(slots, out);
+        return out.toByteArray();
+    }
+
+    /** Every part except word/document.xml, in template order */
+    List<StaticPart> staticParts() {
+        List<StaticPart> parts = new ArrayList<>(partsBefore);
+        parts.addAll(partsAfter);
+        return parts;
+    }
+
+    static String bodyPartName() {
+        return BODY_PART;
+    }
+
+    /**
+     * Renders only word/document.xml. Each item of a top-level loop (a resume section) is
+     * rendered on its own and looked up in previous first, so an unchanged section is copied
+     * rather than re-rendered; every item's bytes are recorded in next for the following call.
+     * Items are matched by equals, so a loop body should only read its own item's slots.
+     * @return how many loop items were reused from previous
+     */
+    int renderBody(Map<String, ?> slots, Map<Object, byte[]> previous, Map<Object, byte[]> next,
+                   OutputStream out) throws IOException {
+        Deque<Object> scopes = new ArrayDeque<>();
+        scopes.push(slots);
+        int reused = 0;
+        for (Node node : body) {
+            if (node instanceof Loop loop && lookup(scopes, loop.name()) instanceof List<?> items) {
+                for (Object item : items) {
+                    byte[] fragment = previous.get(item);
+                    if (fragment != null) {
+                        reused++;
+                    } else {
+                        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+                        scopes.push(item);
+                        renderNodes(loop.body(), scopes, buffer);
+                        scopes.pop();
+                        fragment = buffer.toByteArray();
+                    }
+                    next.put(item, fragment);
+                    out.write(fragment);
+                }
+            } else {
+                renderNodes(List.of(node), scopes, out);
+            }
+        }
+        return reused;
+    }
+
+    private static void writeStored(ZipOutputStream zip, StaticPart part) throws IOException {
+        ZipEntry entry = new ZipEntry(part.name());
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(part.bytes().length);
+        entry.setCompressedSize(part.bytes().length);
+        entry.setCrc(part.crc());
+        zip.putNextEntry(entry);
+        zip.write(part.bytes());
+        zip.closeEntry();
+    }
+
+    private static void renderNodes(List<Node> nodes, Deque<Object> scopes, OutputStream out) throws IOException {
+        for (Node node : nodes) {
+            if (node instanceof Literal literal) {
+                out.write(literal.bytes());
+            } else if (node instanceof Slot slot) {
+                Object value = lookup(scopes, slot.name());
+                if (value != null) out.write(escape(value.toString()).getBytes(StandardCharsets.UTF_8));
+            } else if (node instanceof Loop loop && lookup(scopes, loop.name()) instanceof List<?> items) {
+                for (Object item : items) {
+                    scopes.push(item);
+                    renderNodes(loop.body(), scopes, out);
+                    scopes.pop();
+                }
+            }
+        }
+    }
+
+    /** Innermost scope first, so loop items shadow the top-level slots */
+    private static Object lookup(Deque<Object> scopes, String name) {
+        if (name.equals(".")) return scopes.peek();
+        for (Object scope : scopes) {
+            if (scope instanceof Map<?, ?> map && map.containsKey(name)) return map.get(name);
+        }
+        return null;
+    }
+
+    /** XML-escapes text for a w:t element; newlines become w:br and illegal control characters are dropped */
+    static String escape(String text) {
+        StringBuilder sb = null;
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            String replacement = switch (ch) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '\n' -> LINE_BREAK;
+                case '\r' -> "";
+                default -> ch < 0x20 && ch != '\t' ? "" : null;
+            };
+            if (replacement != null && sb == null) {
+                sb = new StringBuilder(text.length() + 16).append(text, 0, i);
+            }
+            if (sb != null) {
+                if (replacement != null) sb.append(replacement);
+                else sb.append(ch);
+            }
+        }
+        return sb == null ? text : sb.toString();
+    }
+}
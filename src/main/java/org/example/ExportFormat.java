@@ -0,0 +1,19 @@
+package org.example;
+
+/** File formats ResumeExporter can write */
+public enum ExportFormat {
+    DOCX("docx"),
+    PDF("pdf"),
+    TXT("txt"),
+    MARKDOWN("md");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,184 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs resume exports on dedicated I/O threads so the caller, the FX thread above all,
+ * never waits on rendering or disk. Equal requests share one export: a request made while
+ * an identical one is running joins it, and one made after it finished gets the files
+ * already written, as long as each is still there with the size and modification time it was
+ * written with. Different drafts go to the same file names, so a later export of another draft
+ * changes those and the next request for the first draft exports it again.
+ */
+public class ExportService {
+
+    /** Formats written so far out of the total; called from the export threads */
+    @FunctionalInterface
+    public interface Progress {
+        void update(int done, int total);
+    }
+
+    /** The export itself; reports each file as it lands */
+    @FunctionalInterface
+    public interface Task {
+        Map<ExportFormat, Path> run(BiConsumer<ExportFormat, Path> onWritten);
+    }
+
+    /**
+     * Everything that decides the output, so equal requests produce identical files.
+     * @param user the user fields the document uses, in any stable encoding
+     */
+    public record Request(String user, String resumeText, Path outputDir, Set<ExportFormat> formats) {
+        public Request {
+            formats = Collections.unmodifiableSet(EnumSet.copyOf(formats));
+        }
+    }
+
+    private static final int FINISHED_TO_REMEMBER = 16;
+    private static final ExportService SHARED = new ExportService(Integer.getInteger("gemini.export.ioThreads", 1));
+
+    /** One running export and everyone waiting on it */
+    private static final class Job {
+        final CompletableFuture<Map<ExportFormat, Path>> result = new CompletableFuture<>();
+        final List<Progress> listeners = new CopyOnWriteArrayList<>();
+        volatile int done;
+        volatile int total;
+
+        void progress(int done, int total) {
+            this.done = done;
+            this.total = total;
+            for (Progress listener : listeners) listener.update(done, total);
+        }
+    }
+
+    private record FileStamp(long size, FileTime modified) { }
+
+    /** A completed export's files and each file's size and modification time right after it */
+    private record Finished(Map<ExportFormat, Path> written, Map<Path, FileStamp> stamps) {
+
+        static Finished of(Map<ExportFormat, Path> written) {
+            Map<Path, FileStamp> stamps = new HashMap<>();
+            for (Path path : written.values()) {
+                FileStamp stamp = stamp(path);
+                if (stamp == null) return null;
+                stamps.put(path, stamp);
+            }
+            return new Finished(written, stamps);
+        }
+
+        /** Whether every file is still exactly what this export wrote */
+        boolean intact() {
+            for (Map.Entry<Path, FileStamp> entry : stamps.entrySet()) {
+                if (!entry.getValue().equals(stamp(entry.getKey()))) return false;
+            }
+            return true;
+        }
+
+        private static FileStamp stamp(Path path) {
+            try {
+                return new FileStamp(Files.size(path), Files.getLastModifiedTime(path));
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+
+    private final ExecutorService io;
+    private final Map<Request, Job> running = new ConcurrentHashMap<>();
+    private final Map<Request, Finished> finished = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Request, Finished> eldest) {
+                    return size() > FINISHED_TO_REMEMBER;
+                }
+            });
+    private final AtomicLong exports = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public ExportService(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        this.io = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "resume-io-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Process-wide service sized by -Dgemini.export.ioThreads (default 1) */
+    public static ExportService shared() {
+        return SHARED;
+    }
+
+    /**
+     * Starts the export, or joins the identical one already running or finished.
+     * @param progress told about each format written; may be null
+     */
+    public CompletableFuture<Map<ExportFormat, Path>> submit(Request request, Task task, Progress progress) {
+        Finished done = finished.get(request);
+        if (done != null && done.intact()) {
+            coalesced.incrementAndGet();
+            if (progress != null) progress.update(done.written().size(), done.written().size());
+            return CompletableFuture.completedFuture(done.written());
+        }
+
+        boolean[] created = {false};
+        Job job = running.computeIfAbsent(request, r -> {
+            created[0] = true;
+            return new Job();
+        });
+        if (progress != null) {
+            job.listeners.add(progress);
+            if (job.done > 0) progress.update(job.done, job.total); // catch up on a running job
+        }
+        if (created[0]) {
+            exports.incrementAndGet();
+            io.execute(() -> run(request, job, task));
+        } else {
+            coalesced.incrementAndGet();
+        }
+        return job.result;
+    }
+
+    private void run(Request request, Job job, Task task) {
+        try {
+            int total = request.formats().size();
+            AtomicInteger count = new AtomicInteger();
+            Map<ExportFormat, Path> written = task.run((format, path) -> job.progress(count.incrementAndGet(), total));
+            Finished done = written.size() == total ? Finished.of(written) : null;
+            if (done != null) finished.put(request, done);
+            job.result.complete(written);
+        } catch (RuntimeException | Error e) {
+            job.result.completeExceptionally(e);
+        } finally {
+            running.remove(request, job);
+        }
+    }
+
+    /** Exports actually run */
+    public long getExports() {
+        return exports.get();
+    }
+
+    /** Requests answered by a running or finished identical export */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+}
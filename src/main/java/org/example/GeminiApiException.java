@@ -0,0 +1,46 @@
+package org.example;
+
+import java.io.IOException;
+
+/**
+ * A Gemini call that did not produce a resume: an HTTP error, an unusable reply, a transport
+ * failure or an open circuit. Callers must never treat the message as model output.
+ */
+public class GeminiApiException extends IOException {
+
+    private final int statusCode;
+    private final long retryAfterMillis;
+    private final boolean retryable;
+
+    public GeminiApiException(String message, int statusCode, long retryAfterMillis, boolean retryable) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+        this.retryable = retryable;
+    }
+
+    public GeminiApiException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = 0;
+        this.retryAfterMillis = -1;
+        this.retryable = true;
+    }
+
+    /** HTTP status, or 0 if no response was received */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /** Server-requested wait before retrying, or -1 if none was given */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+    static boolean isRetryableStatus(int status) {
+        return status == 408 || status == 429 || status >= 500;
+    }
+}
@@ -0,0 +1,10 @@
+package org.example;
+
+/**
+ * What we keep from a generateContent response. {@code text} is either the model's text or,
+ * when {@code ok} is false, a bracketed placeholder describing what was missing.
+ * {@code error} holds the API's error message when the response was an error object.
+ */
+public record GeminiReply(String text, boolean ok, String error, String finishReason,
+                          int promptTokens, int outputTokens, int totalTokens) {
+}
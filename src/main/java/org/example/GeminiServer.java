@@ -1,48 +1,160 @@
 package org.example;
 
-import com.google.gson.*;
-
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
-import org.apache.poi.xwpf.usermodel.*;
-import java.io.FileOutputStream;
 import java.nio.file.Path;
 
-import javafx.application.Platform;
-import javafx.geometry.Pos;
-import javafx.scene.control.Label;
-import javafx.scene.layout.HBox;
-import javafx.scene.layout.VBox;
-
+/**
+ * Thread-safe engine that talks to Gemini on behalf of many independent {@link Session}s.
+ * Each session's history is locked by the engine for the whole of a turn, so concurrent
+ * callers never interleave inside one conversation. Idle sessions are dropped lazily.
+ * With -Dgemini.journal.dir set, sessions are journaled there and restored on the next start.
+ *
+ * <p>The single-session methods (sendUserMessage(String), setMode, exportLatestResume, ...)
+ * act on a built-in default session and are what the JavaFX UI uses.
+ */
 public class GeminiServer {
 
     public enum Mode { RESUME, REFINEMENT }
-    private Mode currentMode;
 
     private static final String API_URL =
             "https://generativelanguage.googleapis.com/v1/models/gemini-2.5-flash:generateContent";
+    private static final int MAX_FILE_NAME_CHARS = 100;
 
     private final String apiKey;
-
-    private final List<Map<String, Object>> conversation = new ArrayList<>();
-    private String systemInstruction;
-
-    private String latestResumeText = "";
-    public String getLatestResumeText() { return latestResumeText; }
-
-    // controls the amount of recent turns to limit token usage
-    private static final int MAX_TURNS = 6;
+    private final String apiUrl;
+    private final String streamApiUrl;
+
+    // when on, replies are streamed into the chat bubble as they are generated
+    private volatile boolean streaming;
+
+    private RequestScheduler scheduler = RequestScheduler.shared();
+    private volatile ResponseCache responseCache = ResponseCache.shared();
+
+    // One long-lived client shared by every GeminiServer so connections (and their
+    // TLS sessions) are pooled and kept alive across turns instead of rebuilt per message.
+    // Tunable with -Dgemini.http.connectTimeoutMs and -Dgemini.http.threads.
+    private static final HttpClient SHARED_CLIENT = createHttpClient(
+            Duration.ofMillis(Long.getLong("gemini.http.connectTimeoutMs", 10_000)),
+            Integer.getInteger("gemini.http.threads", 4));
+
+    private final HttpClient httpClient;
+
+    private static final Metrics METRICS = Metrics.shared();
+    private static final LatencyRecorder BUILD_TIME = METRICS.latency(Metrics.REQUEST_BUILD);
+    private static final LatencyRecorder FIRST_BYTE_TIME = METRICS.latency(Metrics.FIRST_BYTE);
+    private static final LatencyRecorder FIRST_TOKEN_TIME = METRICS.latency(Metrics.FIRST_TOKEN);
+    private static final LatencyRecorder PARSE_TIME = METRICS.latency(Metrics.PARSE);
+    private static final LatencyRecorder TURN_TIME = METRICS.latency(Metrics.TURN);
+    private static final LongAdder TURNS = METRICS.counter(Metrics.TURNS);
+    private static final LongAdder TURN_ERRORS = METRICS.counter(Metrics.TURN_ERRORS);
+    private static final LongAdder PROMPT_TOKENS = METRICS.counter(Metrics.PROMPT_TOKENS);
+    private static final LongAdder OUTPUT_TOKENS = METRICS.counter(Metrics.OUTPUT_TOKENS);
+    private static final LongAdder CACHE_HITS = METRICS.counter(Metrics.CACHE_HITS);
+    private static final LongAdder CACHE_MISSES = METRICS.counter(Metrics.CACHE_MISSES);
+    private static final AtomicInteger TURNS_IN_FLIGHT = new AtomicInteger();
+    static {
+        METRICS.gauge("turns.inFlight", TURNS_IN_FLIGHT::get);
+        METRICS.gauge("scheduler.inFlight", () -> RequestScheduler.shared().getInFlight());
+    }
+    // rate limits, retries, circuit breaker and hedging in front of httpClient
+    private volatile ResilientTransport transport;
+    // system instruction and pinned resume held server-side; null sends them inline every turn
+    private volatile ContextCache contextCache;
+    private volatile ResumeExporter exporter = ResumeExporter.shared();
+    private volatile ExportService exportService = ExportService.shared();
+    // records every session change so sessions survive a restart; null when not journaling
+    private volatile SessionJournal journal;
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Session defaultSession;
+    private volatile long sessionIdleMillis = Duration.ofMinutes(
+            Long.getLong("gemini.session.idleMinutes", 30)).toMillis();
+    private final AtomicLong lastSweepMillis = new AtomicLong(System.currentTimeMillis());
+
+    public String getLatestResumeText() { return defaultSession.getLatestResumeText(); }
 
     public GeminiServer(String apiKeyResourcePath, Mode initialMode) throws Exception {
+        this(apiKeyResourcePath, initialMode, SHARED_CLIENT, API_URL);
+    }
+
+    /** Lets callers supply their own client and endpoint, e.g. a local stub server */
+    public GeminiServer(String apiKeyResourcePath, Mode initialMode,
+                        HttpClient httpClient, String apiUrl) throws Exception {
         this.apiKey = loadApiKey(apiKeyResourcePath);
         if (this.apiKey == null || this.apiKey.isEmpty()) {
             throw new IllegalStateException("API key is empty or missing!");
         }
-        setMode(initialMode);
+        this.httpClient = Objects.requireNonNull(httpClient, "httpClient");
+        this.apiUrl = Objects.requireNonNull(apiUrl, "apiUrl");
+        this.streamApiUrl = apiUrl.replace(":generateContent", ":streamGenerateContent");
+        this.transport = ResilientTransport.withDefaults(httpClient);
+        this.contextCache = ContextCache.withDefaults(
+                (request, tokens) -> transport.send(request, tokens, false), apiKey, apiUrl);
+        this.defaultSession = new Session("default", initialMode);
+        String journalDir = System.getProperty("gemini.journal.dir");
+        if (journalDir != null && !journalDir.isBlank()) {
+            try {
+                setJournal(SessionJournal.open(Path.of(journalDir)));
+            } catch (IOException e) {
+                System.err.println("Session journal unavailable, sessions will not survive a restart:");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /** Builds an HTTP/2 client with a connect timeout and a bounded pool of daemon worker threads */
+    public static HttpClient createHttpClient(Duration connectTimeout, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "gemini-http-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .executor(executor)
+                .build();
+    }
+
+    public static HttpClient sharedHttpClient() {
+        return SHARED_CLIENT;
+    }
+
+    /**
+     * Opens the pooled connection to the API host ahead of the first turn, so the first
+     * message does not pay for DNS, TCP and the TLS handshake. The answer is ignored.
+     */
+    public CompletableFuture<Void> warmUp() {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(apiUrl).resolve("/"))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofSeconds(10))
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    if (error != null) System.err.println("Connection warm-up failed: " + error.getMessage());
+                    return null;
+                });
     }
 
     private String loadApiKey(String resourcePath) throws Exception {
@@ -54,11 +166,11 @@ public class GeminiServer {
         }
     }
 
-    public void setMode(Mode mode) {
-        this.currentMode = mode;
+    /** The system instruction installed by each mode */
+    public static String instructionFor(Mode mode) {
         switch (mode) {
             case RESUME:
-                this.systemInstruction =
+                return
                         "You are a professional job coach and resume/interview expert. " +
                                 "Your input will come in the form of the user's personal information, " +
                                 "as well as their qualifications/experience in plain language. " +
@@ -67,9 +179,8 @@ public class GeminiServer {
                                 "Responses should be professional in nature. " +
                                 "Do not intentionally shorten responses. " +
                                 "Do not include emojis or emoticons of any kind in your responses. PLEASE DO NOT INCLUDE ANY MARKDOWN FORMATTING.";
-                break;
             case REFINEMENT:
-                this.systemInstruction =
+                return
                         "You are a professional career coach and resume expert. The user will provide an existing resume in plain text format. Your task is to:\n" +
                                 "\n" +
                                 "1. Review the provided resume carefully.\n" +
@@ -81,307 +192,574 @@ public class GeminiServer {
                                 "\n" +
                                 "The user may provide additional details, ask for sections to be rewritten, or request new content to be added. Build the refined resume based on the original content and any new instructions, and respond with the updated resume text." +
                                 "PLEASE DO NOT INCLUDE ANY MARKDOWN FORMATTING IN THE RESPONSE ITSELF. NOTE THAT WE ARE TRYING TO EXPORT INTO A MICROSOFT WORD DOCUMENT WITH SATISFYING FORMAT.";
-                break;
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + mode);
         }
     }
 
+    public void setMode(Mode mode) {
+        defaultSession.setMode(mode);
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
     public Mode getMode() {
-        return currentMode;
+        return defaultSession.getMode();
     }
 
     public void setSystemInstruction(String instruction) {
-        this.systemInstruction = instruction;
+        defaultSession.setSystemInstruction(instruction);
     }
 
-    public String sendUserMessage(String userMessage) throws Exception {
-        addMessage("user", userMessage);
-        trimHistory();
+    // ===== SESSIONS =====
 
-        try {
-            JsonObject requestBody = new JsonObject();
-            JsonArray contents = new JsonArray();
+    /** Starts a new independent conversation */
+    public Session createSession(Mode mode) {
+        evictIdleSessions();
+        Session session = new Session(mode);
+        sessions.put(session.getId(), session);
+        SessionJournal j = journal;
+        if (j != null) j.opened(session);
+        return session;
+    }
 
-            // Encode "system" behavior as the first user message
-            if (systemInstruction != null && !systemInstruction.isEmpty()) {
-                JsonObject sysContent = new JsonObject();
-                sysContent.addProperty("role", "user");
+    /** Returns the session with the given id, or null if it never existed or was evicted */
+    public Session getSession(String id) {
+        Session session = sessions.get(id);
+        if (session != null) session.touch();
+        return session;
+    }
 
-                JsonArray sysParts = new JsonArray();
-                JsonObject sysPart = new JsonObject();
-                sysPart.addProperty("text", systemInstruction);
-                sysParts.add(sysPart);
+    public void closeSession(String id) {
+        Session session = sessions.remove(id);
+        if (session == null) return;
+        scheduler.forget(session);
+        SessionJournal j = session.journal;
+        if (j != null) j.closed(session);
+    }
 
-                sysContent.add("parts", sysParts);
-                contents.add(sysContent);
-            }
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public Session getDefaultSession() {
+        return defaultSession;
+    }
 
-            // Add conversation messages
-            for (Map<String, Object> msg : conversation) {
-                JsonObject content = new JsonObject();
-                JsonArray parts = new JsonArray();
+    public void setSessionIdleTimeout(Duration timeout) {
+        this.sessionIdleMillis = timeout.toMillis();
+    }
 
-                String text = (String) ((Map<?, ?>) ((List<?>) msg.get("parts")).get(0)).get("text");
-                JsonObject partObj = new JsonObject();
-                partObj.addProperty("text", text);
-                parts.add(partObj);
+    /** Drops sessions idle past the timeout; runs at most once a minute, from createSession */
+    private void evictIdleSessions() {
+        long now = System.currentTimeMillis();
+        long last = lastSweepMillis.get();
+        if (now - last < 60_000 || !lastSweepMillis.compareAndSet(last, now)) return;
+        for (Session session : sessions.values()) {
+            if (now - session.getLastActiveMillis() > sessionIdleMillis && !session.lock.isLocked()) {
+                closeSession(session.getId());
+            }
+        }
+    }
 
-                content.addProperty("role", (String) msg.get("role")); // "user" or "model"
-                content.add("parts", parts);
-                contents.add(content);
+    /**
+     * Starts journaling sessions. The journal's recovered sessions replace the default
+     * session's state and rejoin the others; every session is recorded from then on.
+     */
+    public void setJournal(SessionJournal journal) {
+        boolean defaultRecovered = false;
+        for (Session session : journal.recovered()) {
+            if (session.getId().equals(defaultSession.getId())) {
+                defaultSession.restoreFrom(session);
+                journal.attach(defaultSession);
+                defaultRecovered = true;
+            } else {
+                sessions.put(session.getId(), session);
+                journal.attach(session);
             }
+        }
+        if (!defaultRecovered) journal.opened(defaultSession);
+        journal.setLiveSessions(() -> {
+            List<Session> live = new ArrayList<>(sessions.values());
+            live.add(defaultSession);
+            return live;
+        });
+        this.journal = journal;
+    }
 
-            requestBody.add("contents", contents);
+    public SessionJournal getJournal() {
+        return journal;
+    }
 
-            // Send HTTP request
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(API_URL + "?key=" + apiKey))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody.toString()))
-                    .build();
+    private static void journalTurn(Session session, String userMessage, String reply) {
+        SessionJournal j = session.journal;
+        if (j != null) j.turn(session, userMessage, reply);
+    }
 
-            HttpClient client = HttpClient.newHttpClient();
-            HttpResponse<String> response =
-                    client.send(request, HttpResponse.BodyHandlers.ofString());
+    // ===== TURNS =====
 
-            String text = parseResponse(response.body());
-            addMessage("model", text);
-            return text;
+    public String sendUserMessage(String userMessage) throws Exception {
+        return sendUserMessage(defaultSession, userMessage);
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return "[Error: " + e.getMessage() + "]";
-        }
+    /**
+     * Runs one blocking turn for the session; the session is locked until the reply is recorded.
+     * Failures (after retries) throw and leave the history as it was before the call, so an
+     * error can never be mistaken for a resume.
+     */
+    public String sendUserMessage(Session session, String userMessage) throws IOException, InterruptedException {
+        return sendTurn(session, userMessage, false);
     }
 
-    public void sendMessageAsync(String userMessage, VBox chatBox) {
-        addUIMessage(chatBox, userMessage, true); // user bubble
+    /**
+     * Structured-output turn: Gemini is asked for JSON matching {@link ResumeSchema} and the
+     * reply is decoded straight into a ParsedResume, with no text scraping. A reply that does
+     * not decode fails the turn like any other error.
+     */
+    public ParsedResume sendForResume(Session session, String userMessage) throws IOException, InterruptedException {
+        sendTurn(session, userMessage, true);
+        return session.getLatestResume();
+    }
 
-        new Thread(() -> {
-            try {
-                // get Gemini reply
-                String reply = sendUserMessage(userMessage);
+    private String sendTurn(Session session, String userMessage, boolean structured)
+            throws IOException, InterruptedException {
+        session.lock.lock();
+        long startNanos = System.nanoTime();
+        TURNS_IN_FLIGHT.incrementAndGet();
+        try {
+            session.touch();
+            session.history.addUser(userMessage);
+
+            List<byte[]> body = buildRequestBody(session, structured);
+            BUILD_TIME.recordSince(startNanos);
+            String cacheKey = cacheKey(session, body);
+            String cached = lookupCache(cacheKey);
+            if (cached != null) {
+                if (structured) session.setLatestResume(ResumeSchema.decode(cached));
+                session.setLastReply(new GeminiReply(cached, true, null, "CACHED", 0, 0, 0));
+                session.history.addModel(cached, true);
+                journalTurn(session, userMessage, cached);
+                return cached;
+            }
 
-                // Save the AI’s last response so it can be exported later
-                latestResumeText = reply;
+            HttpResponse<InputStream> response = send(session, body, structured, false);
+            FIRST_BYTE_TIME.recordSince(startNanos);
 
-                Platform.runLater(() -> addUIMessage(chatBox, reply, false));
-            } catch (Exception e) {
-                Platform.runLater(() ->
-                        addUIMessage(chatBox, "Error communicating with Gemini: " + e.getMessage(), false)
-                );
+            long parseStart = System.nanoTime();
+            GeminiReply reply = ResponseParser.parse(response.body());
+            PARSE_TIME.recordSince(parseStart);
+            countTokens(reply);
+            session.setLastReply(reply);
+            if (!reply.ok()) {
+                throw new GeminiApiException(reply.text(), response.statusCode(), -1, false);
             }
-        }).start();
-    }
-
+            String text = reply.text();
+            // decode before anything is recorded, so a malformed reply never enters history or cache
+            if (structured) session.setLatestResume(ResumeSchema.decode(text));
+            session.history.addModel(text, true);
+            journalTurn(session, userMessage, text);
+            if (cacheKey != null) {
+                responseCache.put(cacheKey, text);
+            }
+            return text;
 
-    public Path exportLatestResume(UserInfo user) {
-        if (latestResumeText == null || latestResumeText.isEmpty()) {
-            System.err.println("No resume text to export!");
-            return null;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            failTurn(session, e);
+            throw e;
+        } finally {
+            endTurn(startNanos);
+            session.lock.unlock();
         }
+    }
 
-        Path outputPath = Path.of(
-                System.getProperty("user.home"), "Downloads",
-                user.getName().replaceAll("\\s+", "_") + "_AI_Resume.docx"
-        );
-
-        try (XWPFDocument doc = new XWPFDocument()) {
-
-            // ===== HEADER =====
-            XWPFParagraph header = doc.createParagraph();
-            header.setAlignment(ParagraphAlignment.CENTER);
-            XWPFRun nameRun = header.createRun();
-            nameRun.setBold(true);
-            nameRun.setFontSize(20);
-            nameRun.setText(user.getName());
-            nameRun.addBreak();
-
-            XWPFRun contactRun = header.createRun();
-            contactRun.setFontSize(11);
-            contactRun.setText(user.getCityState() + " | " + user.getEmail() + " | " + user.getPhone());
-            contactRun.addBreak();
-            contactRun.addBreak();
-
-            // ===== EDUCATION =====
-            XWPFParagraph eduTitle = doc.createParagraph();
-            XWPFRun eduRun = eduTitle.createRun();
-            eduRun.setBold(true);
-            eduRun.setFontSize(14);
-            eduRun.setText("Education");
-            eduRun.addBreak();
-
-            XWPFParagraph eduBody = doc.createParagraph();
-            XWPFRun eduBodyRun = eduBody.createRun();
-            eduBodyRun.setFontSize(12);
-            eduBodyRun.setText("Quinnipiac University, Hamden, CT");
-            eduBodyRun.addBreak();
-            eduBodyRun.setText("Bachelor of Science in Computer Science — Expected Graduation: May 2027");
-            eduBodyRun.addBreak();
-            eduBodyRun.addBreak();
-
-            // ===== SKILLS =====
-            XWPFParagraph skillTitle = doc.createParagraph();
-            XWPFRun skillRun = skillTitle.createRun();
-            skillRun.setBold(true);
-            skillRun.setFontSize(14);
-            skillRun.setText("Skills");
-            skillRun.addBreak();
-
-            for (String s : user.getQuals().split("\\.")) {
-                if (s.trim().isEmpty()) continue;
-                XWPFParagraph bullet = doc.createParagraph();
-                bullet.setIndentationLeft(400);
-                XWPFRun run = bullet.createRun();
-                run.setFontSize(12);
-                run.setText("• " + s.trim());
-            }
+    public String sendUserMessageStreaming(String userMessage, Consumer<String> onText)
+            throws IOException, InterruptedException {
+        return sendUserMessageStreaming(defaultSession, userMessage, onText);
+    }
 
-            // ===== EXPERIENCE =====
-            XWPFParagraph expTitle = doc.createParagraph();
-            XWPFRun expRun = expTitle.createRun();
-            expRun.setBold(true);
-            expRun.setFontSize(14);
-            expRun.setText("Experience");
-            expRun.addBreak();
-
-            // Try to locate Experience portion from Gemini output
-            String experienceText = extractSection(latestResumeText, "Experience", "Projects");
-            if (experienceText.isEmpty()) experienceText = "Researcher — April 2025 to July 2025\nConducted technological research and development work in software and cybersecurity.";
-            for (String line : experienceText.split("\\*")) {
-                if (line.trim().isEmpty()) continue;
-                XWPFParagraph p = doc.createParagraph();
-                p.setIndentationLeft(400);
-                XWPFRun run = p.createRun();
-                run.setFontSize(12);
-                run.setText("• " + line.trim());
+    /**
+     * Streaming variant of sendUserMessage: text deltas are passed to onText as each SSE
+     * event arrives, and the full reply is returned once the stream ends. Retries only
+     * happen before the stream starts.
+     */
+    public String sendUserMessageStreaming(Session session, String userMessage, Consumer<String> onText)
+            throws IOException, InterruptedException {
+        session.lock.lock();
+        long startNanos = System.nanoTime();
+        long[] firstTokenNanos = { -1 };
+        TURNS_IN_FLIGHT.incrementAndGet();
+        try {
+            session.touch();
+            session.history.addUser(userMessage);
+
+            List<byte[]> body = buildRequestBody(session, false);
+            BUILD_TIME.recordSince(startNanos);
+            String cacheKey = cacheKey(session, body);
+            String cached = lookupCache(cacheKey);
+            if (cached != null) {
+                session.setLastReply(new GeminiReply(cached, true, null, "CACHED", 0, 0, 0));
+                session.setLastTimeToFirstTokenNanos(System.nanoTime() - startNanos);
+                onText.accept(cached);
+                session.history.addModel(cached, true);
+                journalTurn(session, userMessage, cached);
+                return cached;
             }
 
-            // ===== PROJECTS =====
-            XWPFParagraph projTitle = doc.createParagraph();
-            XWPFRun projRun = projTitle.createRun();
-            projRun.setBold(true);
-            projRun.setFontSize(14);
-            projRun.setText("Projects");
-            projRun.addBreak();
-
-            String projectText = extractSection(latestResumeText, "Projects", null);
-            if (projectText.isEmpty()) projectText = "Developed two Android applications using Java and Kotlin, focusing on backend integration and user experience.";
-            for (String line : projectText.split("\\*")) {
-                if (line.trim().isEmpty()) continue;
-                XWPFParagraph p = doc.createParagraph();
-                p.setIndentationLeft(400);
-                XWPFRun run = p.createRun();
-                run.setFontSize(12);
-                run.setText("• " + line.trim());
+            HttpResponse<InputStream> response = send(session, body, false, true);
+            FIRST_BYTE_TIME.recordSince(startNanos);
+
+            SseChunkParser parser = new SseChunkParser(delta -> {
+                if (firstTokenNanos[0] < 0) {
+                    firstTokenNanos[0] = System.nanoTime();
+                    session.setLastTimeToFirstTokenNanos(firstTokenNanos[0] - startNanos);
+                    FIRST_TOKEN_TIME.record(firstTokenNanos[0] - startNanos);
+                }
+                onText.accept(delta);
+            });
+            String text = parser.parse(response.body());
+            if (parser.getError() != null) {
+                System.err.println("Gemini API error: " + parser.getError());
+                throw new GeminiApiException(parser.getError(), response.statusCode(), -1, false);
+            }
+            if (text.isEmpty()) {
+                throw new GeminiApiException("[Empty response]", response.statusCode(), -1, false);
             }
+            GeminiReply last = parser.getLastChunk();
+            countTokens(last);
+            session.setLastReply(new GeminiReply(text, true, null, last.finishReason(),
+                    last.promptTokens(), last.outputTokens(), last.totalTokens()));
+            session.history.addModel(text, true);
+            journalTurn(session, userMessage, text);
+            if (cacheKey != null) {
+                responseCache.put(cacheKey, text);
+            }
+            return text;
 
-            // ===== FOOTER =====
-            XWPFParagraph footer = doc.createParagraph();
-            footer.setAlignment(ParagraphAlignment.CENTER);
-            XWPFRun footerRun = footer.createRun();
-            footerRun.setFontSize(9);
-            footerRun.setColor("808080");
-            footerRun.setText("Generated by HackQU AI Resume Builder");
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            failTurn(session, e);
+            throw e;
+        } finally {
+            endTurn(startNanos);
+            session.lock.unlock();
+        }
+    }
 
-            try (FileOutputStream out = new FileOutputStream(outputPath.toFile())) {
-                doc.write(out);
+    /**
+     * Sends a turn. When the session's system instruction (and pinned resume) is held in a
+     * cached context, only the turns after it go out; if the server has dropped that context,
+     * the turn is sent again with the full inline body. Hedged unless streaming.
+     */
+    private HttpResponse<InputStream> send(Session session, List<byte[]> inlineBody, boolean structured, boolean stream)
+            throws IOException, InterruptedException {
+        ContextCache cache = contextCache;
+        ContextCache.Context context = cache == null ? null
+                : cache.contextFor(session.getSystemContent(), session.history.pinned());
+        if (context != null) {
+            List<ChatMessage> turns = session.history.messages();
+            List<byte[]> body = RequestBodyEncoder.encode(context.name(), turns.subList(context.turns(), turns.size()),
+                    structured ? ResumeSchema.generationConfig() : null);
+            try {
+                return transport.send(httpRequest(stream ? cache.getStreamGenerateUrl() : cache.getGenerateUrl(),
+                        body, stream), estimateTokens(body), !stream);
+            } catch (GeminiApiException e) {
+                if (!ContextCache.isStale(e)) throw e;
+                System.err.println("Cached context " + context.name() + " is gone, sending the turn inline");
+                cache.invalidate(context);
             }
+        }
+        return transport.send(httpRequest(stream ? streamApiUrl : apiUrl, inlineBody, stream),
+                estimateTokens(inlineBody), !stream);
+    }
 
-            System.out.println("Professional resume saved to: " + outputPath);
-            return outputPath;
+    private HttpRequest httpRequest(String url, List<byte[]> body, boolean stream) {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(url + (stream ? "?alt=sse&key=" : "?key=") + apiKey))
+                .header("Content-Type", "application/json")
+                .POST(RequestBodyEncoder.publisher(body));
+        if (stream) request.header("Accept", "text/event-stream");
+        return request.build();
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
+    /** Records the failure and takes the unanswered request back out of the history */
+    private static void failTurn(Session session, Exception e) {
+        TURN_ERRORS.increment();
+        System.err.println("Gemini turn failed: " + e.getMessage());
+        session.history.undoLastUser();
+        session.setLastReply(new GeminiReply("[Error: " + e.getMessage() + "]", false,
+                String.valueOf(e.getMessage()), null, 0, 0, 0));
     }
 
-    /** Extract a section by keyword */
-    private String extractSection(String text, String startKeyword, String endKeyword) {
-        text = text.replace("\r", "");
-        int start = text.toLowerCase().indexOf(startKeyword.toLowerCase());
-        if (start == -1) return "";
-        int end = (endKeyword != null)
-                ? text.toLowerCase().indexOf(endKeyword.toLowerCase(), start + startKeyword.length())
-                : -1;
-        if (end == -1) end = text.length();
-        return text.substring(start + startKeyword.length(), end).trim();
+    private String lookupCache(String cacheKey) {
+        ResponseCache cache = responseCache;
+        if (cacheKey == null || cache == null) return null;
+        String cached = cache.get(cacheKey);
+        (cached != null ? CACHE_HITS : CACHE_MISSES).increment();
+        return cached;
     }
 
+    private static void countTokens(GeminiReply reply) {
+        PROMPT_TOKENS.add(reply.promptTokens());
+        OUTPUT_TOKENS.add(reply.outputTokens());
+    }
 
+    private static void endTurn(long startNanos) {
+        TURNS_IN_FLIGHT.decrementAndGet();
+        TURNS.increment();
+        TURN_TIME.recordSince(startNanos);
+    }
 
-    private void addUIMessage(VBox chatBox, String text, boolean isUser) {
-        Label label = new Label(text);
-        label.setWrapText(true);
-        label.setStyle(isUser
-                ? "-fx-background-color: #0078D7; -fx-text-fill: white; -fx-padding: 10 14 10 14; -fx-background-radius: 12 12 0 12;"
-                : "-fx-background-color: #e8e8e8; -fx-text-fill: black; -fx-padding: 10 14 10 14; -fx-background-radius: 12 12 12 0;");
-        HBox box = new HBox(label);
-        box.setAlignment(isUser ? Pos.CENTER_RIGHT : Pos.CENTER_LEFT);
-        chatBox.getChildren().add(box);
-        chatBox.layout(); // refresh
+    private static int estimateTokens(List<byte[]> body) {
+        return (int) Math.min(Integer.MAX_VALUE, RequestBodyEncoder.length(body) / 4);
     }
 
-    private void addMessage(String role, String text) {
-        Map<String, Object> msg = Map.of(
-                "role", role,
-                "parts", List.of(Map.of("text", text))
-        );
-        conversation.add(msg);
+    public void setTransport(ResilientTransport transport) {
+        this.transport = Objects.requireNonNull(transport, "transport");
     }
 
-    private void trimHistory() {
-        int maxSize = MAX_TURNS * 2; // user+model per turn
-        if (conversation.size() > maxSize) {
-            conversation.subList(0, conversation.size() - maxSize).clear();
-        }
+    public ResilientTransport getTransport() {
+        return transport;
     }
 
-    /** Parse Gemini response JSON to extract text */
-    private String parseResponse(String responseBody) {
-        JsonObject json = JsonParser.parseString(responseBody).getAsJsonObject();
+    /**
+     * The request body already holds the system instruction, the trimmed conversation and the
+     * new message, so hashing it with the mode identifies the reply. Null when caching is off.
+     */
+    private String cacheKey(Session session, List<byte[]> requestBody) {
+        return responseCache == null ? null : ResponseCache.key(String.valueOf(session.getMode()), requestBody);
+    }
 
-        // Handle API errors gracefully
-        if (json.has("error")) {
-            JsonObject error = json.getAsJsonObject("error");
-            String message = error.has("message")
-                    ? error.get("message").getAsString()
-                    : "Unknown API error";
-            System.err.println("Gemini API error: " + message);
-            return "[Error: " + message + "]";
-        }
+    /** Replaces the context cache; null sends the system instruction inline on every turn */
+    public void setContextCache(ContextCache contextCache) {
+        this.contextCache = contextCache;
+    }
 
-        if (!json.has("candidates")) {
-            System.err.println("No candidates field in response: " + responseBody);
-            return "[No candidates in response]";
-        }
+    public ContextCache getContextCache() {
+        return contextCache;
+    }
+
+    /** Replaces the response cache; null disables caching for this server */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    public GeminiReply getLastReply() {
+        return defaultSession.getLastReply();
+    }
+
+    /** Time from sending the last streaming request to its first text delta, or -1 */
+    public long getLastTimeToFirstTokenNanos() {
+        return defaultSession.getLastTimeToFirstTokenNanos();
+    }
+
+    /** Stitches the cached system instruction and turn encodings into a request body */
+    private List<byte[]> buildRequestBody(Session session, boolean structured) {
+        return RequestBodyEncoder.encode(session.getSystemContent(), session.history.messages(),
+                structured ? ResumeSchema.generationConfig() : null);
+    }
 
-        JsonArray candidates = json.getAsJsonArray("candidates");
-        if (candidates.size() == 0) {
-            System.err.println("Empty candidates array in response");
-            return "[Empty response]";
+    public CompletableFuture<String> sendAsync(String userMessage) {
+        return sendAsync(defaultSession, userMessage);
+    }
+
+    /**
+     * Sends a message on the request scheduler without touching the UI. The returned future
+     * completes with the reply the moment generation finishes (latestResumeText is already
+     * updated by then), so follow-up work such as export can chain straight off it.
+     */
+    public CompletableFuture<String> sendAsync(Session session, String userMessage) {
+        return scheduler.submit(session, () -> {
+            String reply = sendUserMessage(session, userMessage);
+            // Save the AI’s last response so it can be exported later
+            session.setLatestResumeText(reply);
+            return reply;
+        });
+    }
+
+    /**
+     * Sends a message on the request scheduler and renders the reply into the chat.
+     * The returned future completes with the reply and can be cancelled; it fails with
+     * RejectedExecutionException when too many messages are already queued.
+     */
+    public CompletableFuture<String> sendMessageAsync(String userMessage, ChatTranscript transcript) {
+        transcript.add(userMessage, true); // user bubble
+
+        CompletableFuture<String> future;
+        if (streaming) {
+            ChatTranscript.Message bubble = transcript.add("", false);
+            future = scheduler.submit(defaultSession, () -> {
+                String reply = sendUserMessageStreaming(defaultSession, userMessage,
+                        delta -> transcript.append(bubble, delta));
+                defaultSession.setLatestResumeText(reply);
+                return reply;
+            });
+            future.whenComplete((reply, error) -> {
+                // errors never streamed any text, so show the final reply in the bubble
+                transcript.setText(bubble, reply != null ? reply : failureText(error));
+            });
+            return future;
         }
 
-        JsonObject firstCandidate = candidates.get(0).getAsJsonObject();
-        if (!firstCandidate.has("content")) {
-            return "[No content in candidate]";
+        future = sendAsync(userMessage);
+        future.whenComplete((reply, error) -> transcript.add(reply != null ? reply : failureText(error), false));
+        return future;
+    }
+
+    private static String failureText(Throwable error) {
+        if (error instanceof CancellationException) {
+            return "[Request cancelled]";
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof RejectedExecutionException) {
+            return "Still working on your previous messages, please wait.";
         }
+        return "Error communicating with Gemini: " + cause.getMessage();
+    }
+
+    public void setScheduler(RequestScheduler scheduler) {
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+    }
+
+    /** Exports the default session's latest resume to ~/Downloads in every default format */
+    public Path exportLatestResume(UserInfo user) {
+        return exportResume(user, defaultSession.getLatestResumeText());
+    }
+
+    /** Exports the given reply to ~/Downloads as DOCX, PDF and TXT; returns the DOCX path */
+    public Path exportResume(UserInfo user, String resumeText) {
+        Map<ExportFormat, Path> written = exportResume(user, resumeText, downloadsDir(), ResumeExporter.DEFAULT_FORMATS);
+        return written.get(ExportFormat.DOCX);
+    }
+
+    /** Exports draft number version (from 1) of the default session the same way; returns the DOCX path */
+    public Path exportResumeVersion(UserInfo user, int version) {
+        return exportResume(user, defaultSession.getVersions().get(version));
+    }
 
-        JsonObject contentObj = firstCandidate.getAsJsonObject("content");
-        if (!contentObj.has("parts")) {
-            return "[No parts in content]";
+    /** Background version of exportLatestResume; the caller never waits on rendering or disk */
+    public CompletableFuture<Map<ExportFormat, Path>> exportLatestResumeAsync(UserInfo user, ExportService.Progress progress) {
+        return exportResumeAsync(user, defaultSession.getLatestResumeText(), progress);
+    }
+
+    /** Background version of exportResumeVersion */
+    public CompletableFuture<Map<ExportFormat, Path>> exportResumeVersionAsync(UserInfo user, int version,
+                                                                               ExportService.Progress progress) {
+        return exportResumeAsync(user, defaultSession.getVersions().get(version), progress);
+    }
+
+    /**
+     * Exports the reply to ~/Downloads in every default format on the export service. Asking
+     * again for the same reply joins the export already running, or returns its files.
+     * Completes with an empty map when there is nothing to export.
+     */
+    public CompletableFuture<Map<ExportFormat, Path>> exportResumeAsync(UserInfo user, String resumeText,
+                                                                        ExportService.Progress progress) {
+        if (resumeText == null || resumeText.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
         }
+        Path outputDir = downloadsDir();
+        Set<ExportFormat> formats = ResumeExporter.DEFAULT_FORMATS;
+        String userFields = String.join("\n", user.getName(), user.getEmail(), user.getPhone(), user.getCityState());
+        return exportService.submit(new ExportService.Request(userFields, resumeText, outputDir, formats),
+                onWritten -> writeResume(user, ResumeDocument.fromReply(user, resumeText), outputDir, formats, onWritten),
+                progress);
+    }
+
+    /**
+     * Exports the reply to ~/Downloads the moment it arrives, as exportResumeAsync does; this is
+     * how the chat saves each freshly built resume. Fails as the reply does.
+     */
+    public CompletableFuture<Map<ExportFormat, Path>> exportOnReply(UserInfo user, CompletableFuture<String> reply,
+                                                                    ExportService.Progress progress) {
+        return reply.thenCompose(text -> exportResumeAsync(user, text, progress));
+    }
+
+    private static Path downloadsDir() {
+        return Path.of(System.getProperty("user.home"), "Downloads");
+    }
 
-        JsonArray parts = contentObj.getAsJsonArray("parts");
-        if (parts.size() == 0) {
-            return "[Empty parts array]";
+    public Path exportResume(UserInfo user, String resumeText, Path outputDir) {
+        return exportResume(user, resumeText, outputDir, EnumSet.of(ExportFormat.DOCX)).get(ExportFormat.DOCX);
+    }
+
+    /** As above, writing baseName.docx instead of the name derived from the user */
+    public Path exportResume(UserInfo user, String resumeText, Path outputDir, String baseName) {
+        if (resumeText == null || resumeText.isEmpty()) {
+            System.err.println("No resume text to export!");
+            return null;
         }
+        return writeResume(ResumeDocument.fromReply(user, resumeText), outputDir, baseName,
+                EnumSet.of(ExportFormat.DOCX), (format, path) -> { }).get(ExportFormat.DOCX);
+    }
 
-        JsonObject firstPart = parts.get(0).getAsJsonObject();
-        if (firstPart.has("text")) {
-            return firstPart.get("text").getAsString();
+    /** Parses the reply once and writes each format in parallel */
+    public Map<ExportFormat, Path> exportResume(UserInfo user, String resumeText, Path outputDir,
+                                                Set<ExportFormat> formats) {
+        if (resumeText == null || resumeText.isEmpty()) {
+            System.err.println("No resume text to export!");
+            return Map.of();
         }
+        return writeResume(user, ResumeDocument.fromReply(user, resumeText), outputDir, formats);
+    }
+
+    /** Exports a structured reply; nothing is parsed from text */
+    public Path exportResume(UserInfo user, ParsedResume resume, Path outputDir) {
+        return exportResume(user, resume, outputDir, EnumSet.of(ExportFormat.DOCX)).get(ExportFormat.DOCX);
+    }
+
+    public Map<ExportFormat, Path> exportResume(UserInfo user, ParsedResume resume, Path outputDir,
+                                                Set<ExportFormat> formats) {
+        return writeResume(user, ResumeDocument.fromParsed(user, resume), outputDir, formats);
+    }
+
+    /** Exports a structured reply to baseName.docx */
+    public Path exportResume(UserInfo user, ParsedResume resume, Path outputDir, String baseName) {
+        return writeResume(ResumeDocument.fromParsed(user, resume), outputDir, baseName,
+                EnumSet.of(ExportFormat.DOCX), (format, path) -> { }).get(ExportFormat.DOCX);
+    }
+
+    private Map<ExportFormat, Path> writeResume(UserInfo user, ResumeDocument resume, Path outputDir,
+                                                Set<ExportFormat> formats) {
+        return writeResume(user, resume, outputDir, formats, (format, path) -> { });
+    }
+
+    private Map<ExportFormat, Path> writeResume(UserInfo user, ResumeDocument resume, Path outputDir,
+                                                Set<ExportFormat> formats, BiConsumer<ExportFormat, Path> onWritten) {
+        return writeResume(resume, outputDir, fileBaseName(user), formats, onWritten);
+    }
+
+    private Map<ExportFormat, Path> writeResume(ResumeDocument resume, Path outputDir, String baseName,
+                                                Set<ExportFormat> formats, BiConsumer<ExportFormat, Path> onWritten) {
+        return exporter.export(resume, outputDir, baseName, formats, onWritten);
+    }
+
+    /**
+     * Name_AI_Resume for the user, keeping only letters, digits, '.', '-' and '_' of the name so
+     * it can never leave the output directory; just AI_Resume when nothing of the name is left.
+     */
+    public static String fileBaseName(UserInfo user) {
+        String name = Objects.toString(user.getName(), "").strip()
+                .replaceAll("\\s+", "_")
+                .replaceAll("[^\\p{L}\\p{N}._-]", "")
+                .replaceAll("^\\.+", "");
+        if (name.length() > MAX_FILE_NAME_CHARS) name = name.substring(0, MAX_FILE_NAME_CHARS);
+        return name.isEmpty() ? "AI_Resume" : name + "_AI_Resume";
+    }
+
+    public ResumeExporter getExporter() {
+        return exporter;
+    }
+
+    public void setExporter(ResumeExporter exporter) {
+        this.exporter = Objects.requireNonNull(exporter, "exporter");
+    }
 
-        return "[No text in response]";
+    public void setExportService(ExportService exportService) {
+        this.exportService = Objects.requireNonNull(exportService, "exportService");
     }
 }
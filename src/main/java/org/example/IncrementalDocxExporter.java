@@ -0,0 +1,202 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Re-exports a resume to the same .docx without redoing work that did not change. The zip is
+ * laid out with every static template part first and word/document.xml last, so the static
+ * prefix is byte-identical in every export. Per target file it remembers the rendered bytes
+ * of each section; the next export re-renders only sections that differ and, when the file
+ * on disk is still the one it wrote, builds the new file from the old one's prefix (copied by
+ * the kernel) plus a freshly written document.xml entry and central directory. Both paths
+ * go through {@link AtomicFiles}, so the target is always either the old or the new document.
+ */
+public class IncrementalDocxExporter {
+
+    /**
+     * What one export cost. bytesWritten is the whole file, which always goes to disk anew;
+     * bytesRendered is the part built in memory this time, the rest being copied from the old file.
+     */
+    public record ExportResult(Path path, long bytesWritten, long bytesRendered, boolean incremental,
+                               int sectionsReused, int sectionsRendered) { }
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL = 0x06054b50;
+    private static final short VERSION = 20;
+    private static final short UTF8_NAMES = 0x0800;
+    private static final short STORED = 0;
+    private static final short DEFLATED = 8;
+    private static final short DOS_TIME = 0;
+    private static final short DOS_DATE = (1 << 5) | 1; // 1980-01-01, so identical input gives identical bytes
+    private static final int MAX_TRACKED_FILES = 64;
+
+    /** What was last written to one target */
+    private static final class State {
+        Map<Object, byte[]> fragments = Map.of();
+        long size = -1;
+        FileTime modified;
+    }
+
+    private final DocxTemplate template;
+    private final byte[] prefix;        // local headers and data of the static parts
+    private final byte[] staticCentral; // their central directory entries
+    private final int staticCount;
+    private final byte[] bodyName = DocxTemplate.bodyPartName().getBytes(StandardCharsets.UTF_8);
+
+    private final Map<Path, State> states = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, State> eldest) {
+                    return size() > MAX_TRACKED_FILES;
+                }
+            });
+
+    public IncrementalDocxExporter(DocxTemplate template) {
+        this.template = template;
+        List<DocxTemplate.StaticPart> parts = template.staticParts();
+        ByteArrayOutputStream local = new ByteArrayOutputStream();
+        ByteArrayOutputStream central = new ByteArrayOutputStream();
+        for (DocxTemplate.StaticPart part : parts) {
+            byte[] name = part.name().getBytes(StandardCharsets.UTF_8);
+            int size = part.bytes().length;
+            central.writeBytes(centralHeader(name, STORED, part.crc(), size, size, local.size()));
+            local.writeBytes(localHeader(name, STORED, part.crc(), size, size));
+            local.writeBytes(part.bytes());
+        }
+        this.prefix = local.toByteArray();
+        this.staticCentral = central.toByteArray();
+        this.staticCount = parts.size();
+    }
+
+    public DocxTemplate getTemplate() {
+        return template;
+    }
+
+    public ExportResult export(ResumeDocument resume, Path target) throws IOException {
+        Path key = target.toAbsolutePath().normalize();
+        State state = states.computeIfAbsent(key, k -> new State());
+        synchronized (state) {
+            Map<Object, byte[]> fragments = new HashMap<>();
+            ByteArrayOutputStream xml = new ByteArrayOutputStream(32 * 1024);
+            int reused = template.renderBody(resume.toSlots(), state.fragments, fragments, xml);
+            byte[] tail = bodyAndDirectory(xml.toByteArray());
+
+            try {
+                boolean incremental = unchangedOnDisk(key, state);
+                long written = prefix.length + tail.length;
+                long rendered;
+                if (incremental) {
+                    // the prefix is copied from the old file, never rewritten in place, so a crash leaves one whole version
+                    AtomicFiles.replaceTail(key, prefix.length, tail);
+                    rendered = tail.length;
+                } else {
+                    AtomicFiles.write(key, out -> {
+                        out.write(prefix);
+                        out.write(tail);
+                    });
+                    rendered = written;
+                }
+                state.fragments = fragments;
+                state.size = written;
+                state.modified = Files.getLastModifiedTime(key);
+                return new ExportResult(target, written, rendered, incremental, reused, fragments.size() - reused);
+            } catch (IOException | RuntimeException e) {
+                // the old file is intact, but what was written to it is uncertain; start the next export from scratch
+                states.remove(key);
+                throw e;
+            }
+        }
+    }
+
+    /** Forgets what was written to target, so its next export is a full one */
+    public void forget(Path target) {
+        states.remove(target.toAbsolutePath().normalize());
+    }
+
+    private static boolean unchangedOnDisk(Path file, State state) {
+        if (state.modified == null) return false;
+        try {
+            return Files.size(file) == state.size && Files.getLastModifiedTime(file).equals(state.modified);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // ===== ZIP LAYOUT =====
+
+    /** The document.xml entry followed by the whole central directory and its end record */
+    private byte[] bodyAndDirectory(byte[] xml) {
+        CRC32 crc = new CRC32();
+        crc.update(xml);
+        byte[] compressed = deflate(xml);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length + staticCentral.length + 256);
+        out.writeBytes(localHeader(bodyName, DEFLATED, crc.getValue(), compressed.length, xml.length));
+        out.writeBytes(compressed);
+
+        long centralOffset = prefix.length + out.size();
+        out.writeBytes(staticCentral);
+        out.writeBytes(centralHeader(bodyName, DEFLATED, crc.getValue(), compressed.length, xml.length, prefix.length));
+        long centralSize = prefix.length + out.size() - centralOffset;
+
+        ByteBuffer end = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+        end.putInt(END_OF_CENTRAL).putShort((short) 0).putShort((short) 0)
+                .putShort((short) (staticCount + 1)).putShort((short) (staticCount + 1))
+                .putInt((int) centralSize).putInt((int) centralOffset).putShort((short) 0);
+        out.writeBytes(end.array());
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 3 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] localHeader(byte[] name, short method, long crc, int compressed, int size) {
+        ByteBuffer header = ByteBuffer.allocate(30 + name.length).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(LOCAL_HEADER).putShort(VERSION).putShort(UTF8_NAMES).putShort(method)
+                .putShort(DOS_TIME).putShort(DOS_DATE)
+                .putInt((int) crc).putInt(compressed).putInt(size)
+                .putShort((short) name.length).putShort((short) 0)
+                .put(name);
+        return header.array();
+    }
+
+    private static byte[] centralHeader(byte[] name, short method, long crc, int compressed, int size, long offset) {
+        ByteBuffer header = ByteBuffer.allocate(46 + name.length).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(CENTRAL_HEADER).putShort(VERSION).putShort(VERSION).putShort(UTF8_NAMES).putShort(method)
+                .putShort(DOS_TIME).putShort(DOS_DATE)
+                .putInt((int) crc).putInt(compressed).putInt(size)
+                .putShort((short) name.length).putShort((short) 0).putShort((short) 0)
+                .putShort((short) 0).putShort((short) 0).putInt(0)
+                .putInt((int) offset)
+                .put(name);
+        return header.array();
+    }
+}
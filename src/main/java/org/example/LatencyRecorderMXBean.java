@@ -0,0 +1,12 @@
+package org.example;
+
+/** One latency histogram as seen from JConsole / VisualVM, under org.example:type=Latency */
+public interface LatencyRecorderMXBean {
+    long getCount();
+    double getMeanMillis();
+    double getP50Millis();
+    double getP90Millis();
+    double getP99Millis();
+    double getP999Millis();
+    double getMaxMillis();
+}
@@ -1,13 +1,17 @@
 package org.example;
 
+import javafx.animation.AnimationTimer;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.geometry.Pos;
+import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
@@ -17,33 +21,126 @@ import org.kordamp.bootstrapfx.BootstrapFX;
 
 import javafx.geometry.Insets;
 
-import javafx.scene.control.ScrollPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import java.nio.file.Path;
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Shows the splash screen first and loads everything else behind it: the font and the
+ * engine (API key, warm connection, templates) load on a background thread, the form is
+ * built when it is first shown and the chat screen once, on the first "Build" click.
+ */
 public class Main extends Application {
 
+    private static final String SPLASH_TEXT = "Build an Awesome Resume With HackQU's AI Resume Builder";
+
     private boolean showUnderscore = true;
 
+    private CompletableFuture<GeminiServer> engine;
+    private CompletableFuture<Font> font;
     private GeminiServer geminiClient;
 
     private UserInfo userInfo = new UserInfo();
 
+    // resolved once and shared by every scene
+    private List<String> stylesheets;
+    private Stage stage;
+    private Scene formScene;
+    private Scene chatScene;
+    private ChatTranscript transcript;
+    private Button downloadButton;
+    // "Draft 1" ... "Draft N"; nothing selected means the latest
+    private ComboBox<String> draftPicker;
+    private ProgressBar exportProgress;
+    private Label exportStatus;
+
     @Override
     public void start(Stage stage) throws Exception {
-        Font font = Font.loadFont(getClass().getResourceAsStream("/org/example/fonts/Raleway.ttf"), 14);
-        System.out.println("Loaded font: " + (font != null ? font.getName() : "null"));
-        try {
-            String keyPath = getClass().getResource("/org/example/API_KEY.txt").getPath();
-            geminiClient = new GeminiServer("/org/example/API_KEY.txt", GeminiServer.Mode.RESUME);
-        } catch (Exception e) {
-            System.err.println("Failed to load API key: " + e.getMessage());
-            Platform.exit();
-            return;
-        }
+        this.stage = stage;
+        Executor background = RequestScheduler.shared().backgroundExecutor();
+        engine = StartupTasks.start(background);
+        font = CompletableFuture.supplyAsync(
+                () -> Font.loadFont(getClass().getResourceAsStream("/org/example/fonts/Raleway.ttf"), 14), background);
+        engine.whenComplete((ready, error) -> {
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                System.err.println("Failed to load API key: " + cause.getMessage());
+                Platform.exit();
+            }
+        });
+        stylesheets = List.of(BootstrapFX.bootstrapFXStylesheet(), getClass().getResource("style.css").toExternalForm());
+
+        stage.setTitle("AI Resume Builder");
+        stage.setScene(newScene(buildSplash()));
+        stage.show();
+        reportFirstFrame();
+    }
+
+    private Scene newScene(Parent root) {
+        Scene scene = new Scene(root, 1400, 900);
+        scene.getStylesheets().addAll(stylesheets);
+        return scene;
+    }
+
+    /** Records the JVM uptime at the first rendered frame as the startup.firstFrameMillis gauge */
+    private static void reportFirstFrame() {
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                long millis = StartupTasks.uptimeMillis();
+                Metrics.shared().gauge("startup.firstFrameMillis", () -> millis);
+                stop();
+            }
+        }.start();
+    }
+
+    //SCREEN 2 (splash)
+
+    private Parent buildSplash() {
+        Label coolTypingTitleText = new Label();
+        coolTypingTitleText.setWrapText(true);
+        coolTypingTitleText.setStyle("-fx-text-alignment: center; -fx-line-spacing: 5;");
+
+        // one frame that fires once per character, rather than a frame per character
+        int[] typed = {0};
+        Timeline timeline = new Timeline(new KeyFrame(Duration.millis(100),
+                e -> coolTypingTitleText.setText(SPLASH_TEXT.substring(0, ++typed[0]))));
+        timeline.setCycleCount(SPLASH_TEXT.length());
+
+        Timeline blinkTimeline = new Timeline(
+                new KeyFrame(Duration.millis(500), e -> {
+                    coolTypingTitleText.setText(showUnderscore ? SPLASH_TEXT + "_" : SPLASH_TEXT);
+                    showUnderscore = !showUnderscore; // flip flag
+                })
+        );
+        blinkTimeline.setCycleCount(Timeline.INDEFINITE);
+        timeline.setOnFinished(e -> blinkTimeline.play());
+
+        VBox root2 = new VBox();
+        root2.setAlignment(Pos.CENTER);
+        root2.setSpacing(50);
+        Button startButton = new Button("Get Started");
+        startButton.setOnAction(e -> stage.setScene(getFormScene()));
+        root2.getChildren().addAll(coolTypingTitleText, startButton);
+
+        // style once Raleway is registered, so the CSS resolves it instead of the fallback font
+        font.whenComplete((loaded, error) -> Platform.runLater(() -> {
+            coolTypingTitleText.getStyleClass().addAll("text-primary", "display-5", "display-3");
+            startButton.getStyleClass().addAll("btn", "btn-primary", "rounded-pill");
+            timeline.play();
+        }));
+        return root2;
+    }
 
-        //SCREEN 1
+    //SCREEN 1 (form)
+
+    private Scene getFormScene() {
+        if (formScene != null) return formScene;
 
         //Button + Text Setup
         VBox root = new VBox();
@@ -82,8 +179,6 @@ public class Main extends Application {
         qualificationsField.setMinHeight(100);
         qualificationsField.setMaxWidth(250);
 
-        //
-
         // Buttons
         Button button = new Button("Build Your Resume!");
         button.setOnAction(e -> {
@@ -94,151 +189,126 @@ public class Main extends Application {
             userInfo.setAbout(aboutMeField.getText());
             userInfo.setQuals(qualificationsField.getText());
 
-            VBox chatContainer = new VBox(10);
-            chatContainer.setPadding(new Insets(10));
-            ScrollPane scrollPane = new ScrollPane(chatContainer);
-            scrollPane.setFitToWidth(true);
-
-            // continue building chat UI
-            TextField inputField = new TextField();
-            inputField.setPromptText("Type a message...");
-            Button sendButton = new Button("Send");
-
-            HBox inputArea = new HBox(10, inputField, sendButton);
-            HBox.setHgrow(inputField, Priority.ALWAYS);
-            inputArea.setPadding(new Insets(10));
-
-            Button downloadButton = new Button("Download as Docx File");
-
-            VBox chatLayout = new VBox(10, scrollPane, inputArea, downloadButton);
-            chatLayout.setPadding(new Insets(10));
-
-            Scene chatScene = new Scene(chatLayout, 1400,900);
-            chatScene.getStylesheets().addAll(BootstrapFX.bootstrapFXStylesheet(),
-                    getClass().getResource("style.css").toExternalForm());
-
-            stage.setScene(chatScene);
-
-            // Gemini mode switch and initial AI prompt
-            geminiClient.setMode(GeminiServer.Mode.REFINEMENT);
-            String initialPrompt = "Build a professional resume using the following info:\n"
-                    + "Name: " + userInfo.getName() + "\n"
-                    + "Email: " + userInfo.getEmail() + "\n"
-                    + "Phone: " + userInfo.getPhone() + "\n"
-                    + "City/State: " + userInfo.getCityState() + "\n"
-                    + "About Me: " + userInfo.getAbout() + "\n"
-                    + "Qualifications: " + userInfo.getQuals();
-
-            geminiClient.sendMessageAsync(initialPrompt, chatContainer);
-
-            new Thread(() -> {
-                try {
-                    Thread.sleep(8000); // wait for Gemini to finish
-                    Path saved = geminiClient.exportLatestResume(userInfo);
-                    if (saved != null) {
-                        Platform.runLater(() -> {
-//                            geminiClient.sendMessageAsync(
-//                                    "Your AI-generated resume has been saved to: " + saved,
-//                                    chatContainer
-//                            );
-                            downloadButton.setDisable(false);
-                        });
-                    }
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                }
-            }).start();
-
-            // handle user chat messages
-            sendButton.setOnAction(ev -> {
-                String userMessage = inputField.getText().trim();
-                if (!userMessage.isEmpty()) {
-                    geminiClient.sendMessageAsync(userMessage, chatContainer);
-                    inputField.clear();
-                }
-            });
-
-            downloadButton.setOnAction(ev -> {
-                Path path = geminiClient.exportLatestResume(userInfo);
-//                if (path != null) {
-//                    geminiClient.sendMessageAsync(
-//                            "Resume saved again to: " + path, chatContainer
-//                    );
-//                } else {
-//                    geminiClient.sendMessageAsync(
-//                            "No resume available yet.", chatContainer
-//                    );
-//                }
-            });
+            button.setDisable(true);
+            // normally long done; otherwise wait for the engine without blocking the FX thread
+            engine.thenAcceptAsync(this::startChat, Platform::runLater)
+                    .whenComplete((done, error) -> Platform.runLater(() -> button.setDisable(false)));
         });
 
-
         // Add everything to Scene 1
         root.getChildren().addAll(title,nameField,emailField,phoneNumberField,cityStateField,aboutMeField,qualificationsField,button);
 
-
-        // Scene 1 + Stage Setup
-        Scene scene = new Scene(root,1400,900);
-        scene.getStylesheets().addAll(BootstrapFX.bootstrapFXStylesheet(), getClass().getResource("style.css").toExternalForm());
         title.getStyleClass().addAll("text-primary", "display-3");
         button.getStyleClass().addAll("btn", "btn-primary", "rounded-pill");
-        title.setFont(font);
-        stage.setTitle("AI Resume Builder");
-        stage.setScene(scene);
-        stage.show();
+        Font raleway = font.getNow(null);
+        if (raleway != null) title.setFont(raleway);
 
-        //SCREEN 2
+        formScene = newScene(root);
+        return formScene;
+    }
 
-        Label coolTypingTitleText = new Label();
-        coolTypingTitleText.setWrapText(true);
-        coolTypingTitleText.setStyle("-fx-text-alignment: center; -fx-line-spacing: 5;");
-        String testText = "Build an Awesome Resume With HackQU's AI Resume Builder";
-        Timeline timeline = new Timeline();
-        for (int i = 0; i < testText.length(); i++) {
-            final int index = i;
-            KeyFrame keyFrame = new KeyFrame(Duration.millis(100 * i), e -> {
-                coolTypingTitleText.setText(testText.substring(0, index + 1));
-            });
-            timeline.getKeyFrames().add(keyFrame);
-        }
+    //SCREEN 3 (chat)
 
-        Timeline blinkTimeline = new Timeline(
-                new KeyFrame(Duration.millis(500), e -> {
-                    if (showUnderscore) {
-                        coolTypingTitleText.setText("Build an Awesome Resume With HackQU's AI Resume Builder_");
-                    } else {
-                        coolTypingTitleText.setText("Build an Awesome Resume With HackQU's AI Resume Builder");
-                    }
-                    showUnderscore = !showUnderscore; // flip flag
-                })
-        );
+    private void startChat(GeminiServer client) {
+        geminiClient = client;
+        stage.setScene(getChatScene());
 
-        blinkTimeline.setCycleCount(Timeline.INDEFINITE);
-        blinkTimeline.play();
+        // Gemini mode switch and initial AI prompt
+        geminiClient.setMode(GeminiServer.Mode.REFINEMENT);
+        String initialPrompt = userInfo.toResumePrompt();
 
+        // export as soon as the first resume has been generated
+        CompletableFuture<String> reply = geminiClient.sendMessageAsync(initialPrompt, transcript);
+        reply.whenCompleteAsync((text, ex) -> refreshDrafts(), Platform::runLater);
+        geminiClient.exportOnReply(userInfo, reply, this::showExportProgress)
+                .whenCompleteAsync((written, ex) -> {
+                    showExportDone(written, ex);
+                    downloadButton.setDisable(false);
+                }, Platform::runLater);
+    }
 
-        timeline.play();
-        VBox root2 = new VBox();
-        root2.setAlignment(Pos.CENTER);
-        root2.setSpacing(50);
-        Button startButton = new Button("Get Started");
+    /** Lists one entry per draft in the picker; runs on the FX thread after each turn */
+    private void refreshDrafts() {
+        int drafts = geminiClient.getDefaultSession().getVersions().size();
+        List<String> items = new ArrayList<>(drafts);
+        for (int v = 1; v <= drafts; v++) items.add("Draft " + v);
+        draftPicker.getItems().setAll(items);
+    }
+
+    private void showExportProgress(int done, int total) {
+        Platform.runLater(() -> {
+            exportProgress.setVisible(true);
+            exportProgress.setProgress(total == 0 ? 0 : (double) done / total);
+            exportStatus.setText("Saving resume... " + done + " of " + total);
+        });
+    }
+
+    private void showExportDone(Map<ExportFormat, Path> written, Throwable ex) {
+        exportProgress.setVisible(false);
+        if (ex != null) {
+            ex.printStackTrace();
+            exportStatus.setText("Export failed: " + ex.getMessage());
+        } else if (written == null || written.isEmpty()) {
+            exportStatus.setText("No resume available yet.");
+        } else {
+            Path saved = written.getOrDefault(ExportFormat.DOCX, written.values().iterator().next());
+            exportStatus.setText("Saved to " + saved.getParent());
+        }
+    }
 
-        startButton.setOnAction(e->{
-            stage.setScene(scene);
+    /** Built on the first "Build" click and reused by every later one */
+    private Scene getChatScene() {
+        if (chatScene != null) return chatScene;
+
+        transcript = new ChatTranscript();
+        VBox.setVgrow(transcript.getView(), Priority.ALWAYS);
+
+        // continue building chat UI
+        TextField inputField = new TextField();
+        inputField.setPromptText("Type a message...");
+        Button sendButton = new Button("Send");
+
+        HBox inputArea = new HBox(10, inputField, sendButton);
+        HBox.setHgrow(inputField, Priority.ALWAYS);
+        inputArea.setPadding(new Insets(10));
+
+        downloadButton = new Button("Download Resume (DOCX, PDF, TXT)");
+        exportProgress = new ProgressBar(0);
+        exportProgress.setVisible(false);
+        exportStatus = new Label();
+        draftPicker = new ComboBox<>();
+        draftPicker.setPromptText("Latest draft");
+        HBox exportArea = new HBox(10, draftPicker, downloadButton, exportProgress, exportStatus);
+        exportArea.setAlignment(Pos.CENTER_LEFT);
+
+        VBox chatLayout = new VBox(10, transcript.getView(), inputArea, exportArea);
+        chatLayout.setPadding(new Insets(10));
+
+        // handle user chat messages
+        sendButton.setOnAction(ev -> {
+            String userMessage = inputField.getText().trim();
+            if (!userMessage.isEmpty()) {
+                geminiClient.sendMessageAsync(userMessage, transcript)
+                        .whenCompleteAsync((reply, ex) -> refreshDrafts(), Platform::runLater);
+                inputField.clear();
+            }
         });
 
-        coolTypingTitleText.getStyleClass().addAll("text-primary", "display-5");
-        root2.getChildren().addAll(coolTypingTitleText,startButton);
-        Scene scene2 = new Scene(root2,1400,900);
-        scene2.getStylesheets().addAll(BootstrapFX.bootstrapFXStylesheet(), getClass().getResource("style.css").toExternalForm());
-        coolTypingTitleText.getStyleClass().addAll("text-primary", "display-3");
-        startButton.getStyleClass().addAll("btn", "btn-primary", "rounded-pill");
-        stage.setScene(scene2);
-        stage.show();
+        // the export runs on the export service; repeated clicks join the one in flight
+        downloadButton.setOnAction(ev -> {
+            int selected = draftPicker.getSelectionModel().getSelectedIndex();
+            (selected < 0
+                    ? geminiClient.exportLatestResumeAsync(userInfo, this::showExportProgress)
+                    : geminiClient.exportResumeVersionAsync(userInfo, selected + 1, this::showExportProgress))
+                    .whenCompleteAsync(this::showExportDone, Platform::runLater);
+        });
+
+        chatScene = newScene(chatLayout);
+        return chatScene;
     }
 
     public static void main(String[] args) {
         System.out.println("Test works!");
         launch(args);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,198 @@
+package org.example;
+
+import com.google.gson.stream.JsonWriter;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide latency histograms, counters and gauges. Hot paths look their recorders up
+ * once into static fields, so recording costs an increment or two. Everything is visible
+ * over JMX (org.example:type=Metrics and org.example:type=Latency,name=...) and, with
+ * -Dgemini.metrics.dumpSeconds=N, dumped as one JSON object every N seconds: to the file
+ * named by -Dgemini.metrics.file, otherwise to standard out.
+ */
+public final class Metrics implements MetricsMXBean {
+
+    // latencies
+    public static final String REQUEST_BUILD = "request.build";
+    public static final String HTTP_ATTEMPT = "http.attempt";
+    public static final String FIRST_BYTE = "turn.firstByte";
+    public static final String FIRST_TOKEN = "turn.firstToken";
+    public static final String PARSE = "turn.parse";
+    public static final String TURN = "turn.total";
+    public static final String UI_DISPATCH = "ui.dispatch";
+    public static final String EXPORT = "export."; // + format extension
+    public static final String JOURNAL_COMMIT = "journal.commit";
+
+    // counters
+    public static final String TURNS = "turns";
+    public static final String TURN_ERRORS = "turns.errors";
+    public static final String PROMPT_TOKENS = "tokens.prompt";
+    public static final String OUTPUT_TOKENS = "tokens.output";
+    public static final String CACHE_HITS = "cache.hits";
+    public static final String CACHE_MISSES = "cache.misses";
+    public static final String RETRIES = "http.retries";
+    public static final String HEDGES = "http.hedges";
+    public static final String HTTP_FAILURES = "http.failures";
+    public static final String EXPORT_BYTES = "export.bytes";
+    public static final String DOCX_INCREMENTAL = "export.docx.incremental";
+    public static final String DOCX_SECTIONS_REUSED = "export.docx.sectionsReused";
+    public static final String DOCX_SECTIONS_RENDERED = "export.docx.sectionsRendered";
+    public static final String DOCX_BYTES_RENDERED = "export.docx.bytesRendered";
+    public static final String CONTEXT_HITS = "context.hits";
+    public static final String CONTEXT_CREATED = "context.created";
+    public static final String CONTEXT_REFRESHED = "context.refreshed";
+    public static final String CONTEXT_FAILURES = "context.failures";
+    public static final String JOURNAL_RECORDS = "journal.records";
+
+    private static final Metrics SHARED = new Metrics(true);
+
+    private final boolean jmx;
+    private final Map<String, LatencyRecorder> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private Metrics(boolean jmx) {
+        this.jmx = jmx;
+    }
+
+    /** A registry that is not exported over JMX, e.g. for tests and benchmarks */
+    public static Metrics local() {
+        return new Metrics(false);
+    }
+
+    public static Metrics shared() {
+        return SHARED;
+    }
+
+    static {
+        SHARED.register("org.example:type=Metrics", SHARED);
+        long dumpSeconds = Long.getLong("gemini.metrics.dumpSeconds", 0);
+        if (dumpSeconds > 0) SHARED.startDumping(dumpSeconds, System.getProperty("gemini.metrics.file"));
+    }
+
+    public LatencyRecorder latency(String name) {
+        return latencies.computeIfAbsent(name, n -> {
+            LatencyRecorder recorder = new LatencyRecorder(n);
+            register("org.example:type=Latency,name=" + ObjectName.quote(n), recorder);
+            return recorder;
+        });
+    }
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /** Sampled on every read; a later gauge with the same name replaces the earlier one */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    private void register(String name, Object mbean) {
+        if (!jmx) return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (!server.isRegistered(objectName)) server.registerMBean(mbean, objectName);
+        } catch (JMException e) {
+            System.err.println("Could not register " + name + " over JMX: " + e.getMessage());
+        }
+    }
+
+    // ===== READING =====
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, adder) -> values.put(name, adder.sum()));
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+        Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    @Override
+    public String getJson() {
+        StringWriter out = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(out)) {
+            writer.beginObject().name("timestamp").value(System.currentTimeMillis());
+            writer.name("latencyMillis").beginObject();
+            for (LatencyRecorder recorder : new TreeMap<>(latencies).values()) {
+                LatencyRecorder.Snapshot s = recorder.snapshot();
+                writer.name(recorder.getName()).beginObject()
+                        .name("count").value(s.count())
+                        .name("mean").value(millis(s.mean()))
+                        .name("p50").value(millis(s.p50()))
+                        .name("p90").value(millis(s.p90()))
+                        .name("p99").value(millis(s.p99()))
+                        .name("p999").value(millis(s.p999()))
+                        .name("max").value(millis(s.max()))
+                        .endObject();
+            }
+            writer.endObject();
+            writer.name("counters").beginObject();
+            for (Map.Entry<String, Long> e : getCounters().entrySet()) writer.name(e.getKey()).value(e.getValue());
+            writer.endObject();
+            writer.name("gauges").beginObject();
+            for (Map.Entry<String, Long> e : getGauges().entrySet()) writer.name(e.getKey()).value(e.getValue());
+            writer.endObject();
+            writer.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory writer, cannot happen
+        }
+        return out.toString();
+    }
+
+    /** Three decimals are plenty and keep the dump readable */
+    private static double millis(double nanos) {
+        return Math.round(nanos / 1e3) / 1e3;
+    }
+
+    // ===== DUMP =====
+
+    /** Writes getJson() every periodSeconds on a daemon thread, to file or, if null, standard out */
+    public void startDumping(long periodSeconds, String file) {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleAtFixedRate(() -> {
+            try {
+                String json = getJson();
+                if (file == null) {
+                    System.out.println("Metrics: " + json);
+                } else {
+                    AtomicFiles.write(Path.of(file), out -> {
+                        OutputStreamWriter writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                        writer.write(json);
+                        writer.flush();
+                    });
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Metrics dump failed: " + e.getMessage());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+}
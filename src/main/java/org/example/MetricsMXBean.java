@@ -0,0 +1,11 @@
+package org.example;
+
+import java.util.Map;
+
+/** Counters and gauges of {@link Metrics}, under org.example:type=Metrics */
+public interface MetricsMXBean {
+    Map<String, Long> getCounters();
+    Map<String, Long> getGauges();
+    /** Everything, latencies included, as the periodic dump writes it */
+    String getJson();
+}
@@ -0,0 +1,65 @@
+package org.example;
+
+import java.util.List;
+
+/**
+ * A Gemini resume reply split into its parts by {@link ResumeTextParser}. Anything the model
+ * left out is empty, never filled in with placeholder text.
+ *
+ * @param header     non-blank lines before the first heading (usually name and contact)
+ * @param extras     sections under headings the parser does not know, in reply order
+ */
+public record ParsedResume(List<String> header, String summary, List<String> education, List<String> skills,
+                           List<Entry> experience, List<Entry> projects, List<ResumeDocument.Section> extras) {
+
+    /** A job or project: its title line and the bullets under it */
+    public record Entry(String title, List<String> details) {
+        public Entry {
+            details = List.copyOf(details);
+        }
+
+        /** Title and details as one block, details on their own lines */
+        public String toText() {
+            return details.isEmpty() ? title : title + "\n" + String.join("\n", details);
+        }
+    }
+
+    public ParsedResume {
+        header = List.copyOf(header);
+        education = List.copyOf(education);
+        skills = List.copyOf(skills);
+        experience = List.copyOf(experience);
+        projects = List.copyOf(projects);
+        extras = List.copyOf(extras);
+    }
+
+    /** Plain text in the layout ResumeTextParser reads back, for the chat and the history */
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        for (String line : header) sb.append(line).append('\n');
+        appendSection(sb, "Summary", summary.isEmpty() ? List.of() : List.of(summary), false);
+        appendSection(sb, "Education", education, false);
+        appendSection(sb, "Skills", skills, true);
+        appendEntries(sb, "Experience", experience);
+        appendEntries(sb, "Projects", projects);
+        for (ResumeDocument.Section extra : extras) {
+            appendSection(sb, "## " + extra.title(), extra.lines(), extra.bulleted());
+        }
+        return sb.toString().trim();
+    }
+
+    private static void appendSection(StringBuilder sb, String title, List<String> lines, boolean bulleted) {
+        if (lines.isEmpty()) return;
+        sb.append('\n').append(title).append('\n');
+        for (String line : lines) sb.append(bulleted ? "* " : "").append(line).append('\n');
+    }
+
+    private static void appendEntries(StringBuilder sb, String title, List<Entry> entries) {
+        if (entries.isEmpty()) return;
+        sb.append('\n').append(title).append('\n');
+        for (Entry entry : entries) {
+            sb.append(entry.title()).append('\n');
+            for (String detail : entry.details()) sb.append("* ").append(detail).append('\n');
+        }
+    }
+}
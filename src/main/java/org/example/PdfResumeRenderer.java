@@ -0,0 +1,208 @@
+package org.example;
+
+import org.apache.fontbox.ttf.CmapLookup;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lays a ResumeDocument out on Letter pages with PDFBox, in the bundled Raleway embedded as
+ * a subset. The font file is read once per process and parsed once per export thread;
+ * each document then only subsets the glyphs it actually uses.
+ */
+public final class PdfResumeRenderer {
+
+    private static final String FONT_RESOURCE = "/org/example/fonts/Raleway.ttf";
+
+    private static final float MARGIN = 54;
+    private static final float NAME_SIZE = 20;
+    private static final float CONTACT_SIZE = 11;
+    private static final float HEADING_SIZE = 14;
+    private static final float BODY_SIZE = 11;
+    private static final float FOOTER_SIZE = 9;
+    private static final float LEADING = 1.35f;
+    private static final float BULLET_INDENT = 14;
+
+    private static final byte[] FONT_BYTES = readFont();
+    // PDFBox reads glyph tables lazily while subsetting, so a parsed font stays on one thread
+    private static final ThreadLocal<TrueTypeFont> FONT = ThreadLocal.withInitial(() -> {
+        try {
+            return new TTFParser().parse(new ByteArrayInputStream(FONT_BYTES));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    });
+
+    private PdfResumeRenderer() {}
+
+    private static byte[] readFont() {
+        try (InputStream in = PdfResumeRenderer.class.getResourceAsStream(FONT_RESOURCE)) {
+            if (in == null) throw new IllegalStateException("Font resource not found: " + FONT_RESOURCE);
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void write(ResumeDocument resume, OutputStream out) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            TrueTypeFont ttf = FONT.get();
+            doc.getDocumentInformation().setTitle(resume.name() + " - Resume");
+            doc.getDocumentInformation().setCreator(ResumeDocument.FOOTER);
+
+            Layout layout = new Layout(doc, PDType0Font.load(doc, ttf, true), ttf.getUnicodeCmapLookup());
+            layout.centered(resume.name(), NAME_SIZE, 0f);
+            layout.centered(resume.contact(), CONTACT_SIZE, 0.3f);
+            layout.gap(BODY_SIZE);
+
+            for (ResumeDocument.Section section : resume.sections()) {
+                layout.heading(section.title());
+                for (String line : section.lines()) {
+                    for (String paragraph : line.split("\n")) {
+                        layout.paragraph(paragraph, section.bulleted());
+                    }
+                    if (!section.bulleted()) layout.gap(BODY_SIZE * 0.4f);
+                }
+                layout.gap(BODY_SIZE * 0.6f);
+            }
+
+            layout.gap(BODY_SIZE);
+            layout.centered(resume.footer(), FOOTER_SIZE, 0.5f);
+            layout.close();
+            doc.save(out);
+        }
+    }
+
+    /** Cursor over the current page; opens a new page whenever the next line would not fit */
+    private static final class Layout {
+        private final PDDocument doc;
+        private final PDType0Font font;
+        private final CmapLookup glyphs;
+        private final float width;
+        private final float height;
+        private PDPageContentStream stream;
+        private float y;
+
+        Layout(PDDocument doc, PDType0Font font, CmapLookup glyphs) throws IOException {
+            this.doc = doc;
+            this.font = font;
+            this.glyphs = glyphs;
+            this.width = PDRectangle.LETTER.getWidth();
+            this.height = PDRectangle.LETTER.getHeight();
+            newPage();
+        }
+
+        private void newPage() throws IOException {
+            if (stream != null) stream.close();
+            PDPage page = new PDPage(PDRectangle.LETTER);
+            doc.addPage(page);
+            stream = new PDPageContentStream(doc, page);
+            y = height - MARGIN;
+        }
+
+        private void ensureRoom(float lineHeight) throws IOException {
+            if (y - lineHeight < MARGIN) newPage();
+        }
+
+        void gap(float points) {
+            y -= points;
+        }
+
+        void centered(String text, float size, float grey) throws IOException {
+            for (String line : wrap(clean(text), size, width - 2 * MARGIN)) {
+                float lineHeight = size * LEADING;
+                ensureRoom(lineHeight);
+                y -= lineHeight;
+                show(line, (width - textWidth(line, size)) / 2, size, grey);
+            }
+        }
+
+        void heading(String title) throws IOException {
+            // keep a heading together with at least one body line
+            ensureRoom(HEADING_SIZE * LEADING + BODY_SIZE * LEADING * 2);
+            y -= HEADING_SIZE * LEADING;
+            show(clean(title), MARGIN, HEADING_SIZE, 0f);
+            y -= 3;
+            stream.setStrokingColor(0.6f, 0.6f, 0.6f);
+            stream.setLineWidth(0.5f);
+            stream.moveTo(MARGIN, y);
+            stream.lineTo(width - MARGIN, y);
+            stream.stroke();
+            y -= 4;
+        }
+
+        void paragraph(String text, boolean bullet) throws IOException {
+            float x = bullet ? MARGIN + BULLET_INDENT : MARGIN;
+            List<String> lines = wrap(clean(text), BODY_SIZE, width - MARGIN - x);
+            for (int i = 0; i < lines.size(); i++) {
+                float lineHeight = BODY_SIZE * LEADING;
+                ensureRoom(lineHeight);
+                y -= lineHeight;
+                if (bullet && i == 0) show("•", MARGIN + 4, BODY_SIZE, 0f);
+                show(lines.get(i), x, BODY_SIZE, 0f);
+            }
+        }
+
+        private void show(String text, float x, float size, float grey) throws IOException {
+            if (text.isEmpty()) return;
+            stream.beginText();
+            stream.setFont(font, size);
+            stream.setNonStrokingColor(grey, grey, grey);
+            stream.newLineAtOffset(x, y);
+            stream.showText(text);
+            stream.endText();
+        }
+
+        private float textWidth(String text, float size) throws IOException {
+            return font.getStringWidth(text) / 1000f * size;
+        }
+
+        /** Greedy word wrap; a single word wider than the line is left to overflow */
+        private List<String> wrap(String text, float size, float maxWidth) throws IOException {
+            List<String> lines = new ArrayList<>();
+            StringBuilder line = new StringBuilder();
+            for (String word : text.split(" ")) {
+                if (word.isEmpty()) continue;
+                int mark = line.length();
+                if (mark > 0) line.append(' ');
+                line.append(word);
+                if (mark > 0 && textWidth(line.toString(), size) > maxWidth) {
+                    line.setLength(mark);
+                    lines.add(line.toString());
+                    line.setLength(0);
+                    line.append(word);
+                }
+            }
+            if (!line.isEmpty()) lines.add(line.toString());
+            return lines;
+        }
+
+        /** Replaces characters Raleway has no glyph for, which PDFBox would otherwise reject */
+        private String clean(String text) {
+            StringBuilder sb = new StringBuilder(text.length());
+            text.codePoints().forEach(cp -> {
+                if (cp == '\t' || cp == '\r' || cp == '\n') sb.append(' ');
+                else if (Character.isISOControl(cp)) return;
+                else if (cp == ' ' || glyphs.getGlyphId(cp) != 0) sb.appendCodePoint(cp);
+                else sb.append('?');
+            });
+            return sb.toString();
+        }
+
+        void close() throws IOException {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.example;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket that paces calls to a per-minute quota. Callers reserve permits and then
+ * sleep outside the lock, so a waiting virtual thread never blocks other callers.
+ */
+public class RateLimiter {
+
+    private final double permitsPerNano;
+    private final double capacity;
+    private double available;
+    private long lastRefillNanos;
+
+    /**
+     * @param perMinute sustained rate
+     * @param burst     permits that may be taken at once after an idle period
+     */
+    public RateLimiter(int perMinute, int burst) {
+        if (perMinute < 1 || burst < 1) {
+            throw new IllegalArgumentException("rate and burst must be positive");
+        }
+        this.permitsPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.capacity = burst;
+        this.available = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    public void acquire() throws InterruptedException {
+        acquire(1);
+    }
+
+    /** Blocks until the permits are available; requests larger than the burst are clamped to it */
+    public void acquire(int permits) throws InterruptedException {
+        long waitNanos = reserve(permits);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /** Takes the permits now, possibly going into debt, and returns how long to wait before using them */
+    public synchronized long reserve(int permits) {
+        refill();
+        available -= Math.min(permits, capacity);
+        return available >= 0 ? 0 : (long) Math.ceil(-available / permitsPerNano);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(capacity, available + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,118 @@
+package org.example;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds generateContent request bodies from pre-encoded pieces. Each turn (and the system
+ * instruction) is written once with a streaming JsonWriter; a request is then just the list
+ * of those byte arrays stitched together with a few constant separators, so nothing is
+ * re-serialized and no intermediate String of the whole body is built.
+ */
+public final class RequestBodyEncoder {
+
+    private static final byte[] PREFIX = bytes("{\"contents\":[");
+    private static final byte[] COMMA = bytes(",");
+    private static final byte[] SUFFIX = bytes("]}");
+    private static final byte[] CONFIG_PREFIX = bytes("],\"generationConfig\":");
+    private static final byte[] CONFIG_SUFFIX = bytes("}");
+
+    private RequestBodyEncoder() {}
+
+    /** Encodes {"role":role,"parts":[{"text":text}]} */
+    public static byte[] encodeContent(String role, String text) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(text.length() + 48);
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writer.beginObject()
+                    .name("role").value(role)
+                    .name("parts").beginArray()
+                    .beginObject().name("text").value(text).endObject()
+                    .endArray()
+                    .endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory stream, cannot happen
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the body as a list of chunks.
+     * @param systemContent encoded system instruction turn, or null for none
+     */
+    public static List<byte[]> encode(byte[] systemContent, List<ChatMessage> conversation) {
+        return encode(systemContent, conversation, null);
+    }
+
+    /** As above, with a pre-encoded generationConfig object appended when not null */
+    public static List<byte[]> encode(byte[] systemContent, List<ChatMessage> conversation, byte[] generationConfig) {
+        List<byte[]> chunks = new ArrayList<>(conversation.size() * 2 + 5);
+        chunks.add(PREFIX);
+        boolean first = true;
+        if (systemContent != null) {
+            chunks.add(systemContent);
+            first = false;
+        }
+        for (ChatMessage msg : conversation) {
+            if (!first) chunks.add(COMMA);
+            chunks.add(msg.encoded());
+            first = false;
+        }
+        if (generationConfig != null) {
+            chunks.add(CONFIG_PREFIX);
+            chunks.add(generationConfig);
+            chunks.add(CONFIG_SUFFIX);
+        } else {
+            chunks.add(SUFFIX);
+        }
+        return chunks;
+    }
+
+    /**
+     * Body for a request that references a cached context: {"cachedContent":name,"contents":[...]}.
+     * The conversation holds only the turns that come after the cached ones.
+     */
+    public static List<byte[]> encode(String cachedContent, List<ChatMessage> conversation, byte[] generationConfig) {
+        ByteArrayOutputStream head = new ByteArrayOutputStream(cachedContent.length() + 40);
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(head, StandardCharsets.UTF_8))) {
+            writer.beginObject().name("cachedContent").value(cachedContent).endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory stream, cannot happen
+        }
+        byte[] headBytes = head.toByteArray();
+        List<byte[]> chunks = encode((byte[]) null, conversation, generationConfig);
+        // {"cachedContent":"..." + ,"contents":[ ... in place of {"contents":[
+        chunks.set(0, bytes(new String(headBytes, 0, headBytes.length - 1, StandardCharsets.UTF_8) + ",\"contents\":["));
+        return chunks;
+    }
+
+    /** Publishes the chunks as-is with an exact Content-Length */
+    public static HttpRequest.BodyPublisher publisher(List<byte[]> chunks) {
+        return HttpRequest.BodyPublishers.fromPublisher(
+                HttpRequest.BodyPublishers.ofByteArrays(chunks), length(chunks));
+    }
+
+    public static long length(List<byte[]> chunks) {
+        long length = 0;
+        for (byte[] chunk : chunks) length += chunk.length;
+        return length;
+    }
+
+    /** Joins the chunks, for logging and tests */
+    public static String toString(List<byte[]> chunks) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) length(chunks));
+        for (byte[] chunk : chunks) out.writeBytes(chunk);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
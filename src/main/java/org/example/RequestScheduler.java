@@ -0,0 +1,132 @@
+package org.example;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs Gemini calls on virtual threads with bounded concurrency.
+ * <ul>
+ *   <li>each session may have at most {@code perSessionLimit} calls running at once</li>
+ *   <li>at most {@code globalLimit} calls are in flight across all sessions</li>
+ *   <li>a session may have at most {@code maxQueueDepth} calls waiting or running;
+ *       anything beyond that is rejected straight away</li>
+ * </ul>
+ * Cancelling a returned future interrupts the call, which aborts a blocking HTTP send.
+ */
+public class RequestScheduler {
+
+    private static final RequestScheduler SHARED = new RequestScheduler(
+            Integer.getInteger("gemini.scheduler.perSession", 1),
+            Integer.getInteger("gemini.scheduler.global", 16),
+            Integer.getInteger("gemini.scheduler.queueDepth", 4));
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore globalPermits;
+    private final int perSessionLimit;
+    private final int maxQueueDepth;
+    private final ConcurrentHashMap<Object, SessionSlots> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public RequestScheduler(int perSessionLimit, int globalLimit, int maxQueueDepth) {
+        if (perSessionLimit < 1 || globalLimit < 1 || maxQueueDepth < perSessionLimit) {
+            throw new IllegalArgumentException("invalid scheduler limits");
+        }
+        this.perSessionLimit = perSessionLimit;
+        this.globalPermits = new Semaphore(globalLimit, true);
+        this.maxQueueDepth = maxQueueDepth;
+    }
+
+    public static RequestScheduler shared() {
+        return SHARED;
+    }
+
+    /** Queues a call for the given session; the future fails with RejectedExecutionException when the session is full */
+    public <T> CompletableFuture<T> submit(Object sessionKey, Callable<T> task) {
+        SessionSlots slots = sessions.computeIfAbsent(sessionKey, k -> new SessionSlots(perSessionLimit));
+        if (slots.pending.incrementAndGet() > maxQueueDepth) {
+            slots.pending.decrementAndGet();
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("Too many requests queued for this session"));
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // whoever claims the call gives its pending slot back: the task once it starts,
+        // or the cancel below if the task never will
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<?> running;
+        try {
+            running = executor.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) return;
+                try {
+                    slots.running.acquire();
+                    try {
+                        globalPermits.acquire();
+                        inFlight.incrementAndGet();
+                        try {
+                            if (!result.isDone()) result.complete(task.call());
+                        } finally {
+                            inFlight.decrementAndGet();
+                            globalPermits.release();
+                        }
+                    } finally {
+                        slots.running.release();
+                    }
+                } catch (InterruptedException e) {
+                    result.cancel(false);
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                } finally {
+                    slots.pending.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slots.pending.decrementAndGet();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        result.whenComplete((r, t) -> {
+            if (!result.isCancelled()) return;
+            if (claimed.compareAndSet(false, true)) {
+                slots.pending.decrementAndGet();
+            }
+            running.cancel(true);
+        });
+        return result;
+    }
+
+    /** Runs non-API background work (exports, watchers) on a virtual thread, outside the call limits */
+    public CompletableFuture<Void> runAsync(Runnable task) {
+        return CompletableFuture.runAsync(task, executor);
+    }
+
+    /** Virtual-thread executor for chaining background stages off returned futures */
+    public Executor backgroundExecutor() {
+        return executor;
+    }
+
+    /** Calls currently holding a global permit */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /** Calls waiting or running for the given session */
+    public int getPending(Object sessionKey) {
+        SessionSlots slots = sessions.get(sessionKey);
+        return slots == null ? 0 : slots.pending.get();
+    }
+
+    /** Drops the bookkeeping for a session that has no calls left */
+    public void forget(Object sessionKey) {
+        sessions.computeIfPresent(sessionKey, (k, slots) -> slots.pending.get() == 0 ? null : slots);
+    }
+
+    private static class SessionSlots {
+        final Semaphore running;
+        final AtomicInteger pending = new AtomicInteger();
+
+        SessionSlots(int limit) {
+            running = new Semaphore(limit, true);
+        }
+    }
+}
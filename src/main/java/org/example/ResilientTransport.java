@@ -0,0 +1,259 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Everything between GeminiServer and the HttpClient: request and token rate limits,
+ * retries with jittered backoff for 429/5xx and transport errors, a circuit breaker, and
+ * optional hedging of slow non-streaming calls. Every attempt that sets no timeout of its own
+ * gets the request timeout, so a server that never answers counts as a failed attempt instead
+ * of holding the turn forever. Only 2xx responses are returned; anything else ends as a
+ * GeminiApiException.
+ */
+public class ResilientTransport {
+
+    // Gemini puts its retry hint in the error details rather than a header
+    private static final Pattern RETRY_DELAY = Pattern.compile("\"retryDelay\"\\s*:\\s*\"(\\d+(?:\\.\\d+)?)s\"");
+
+    private final HttpClient client;
+    private final RateLimiter requestLimiter;
+    private final RateLimiter tokenLimiter;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker breaker;
+    private final long hedgeAfterMillis;
+    private final Duration requestTimeout;
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private static final LatencyRecorder ATTEMPT_TIME = Metrics.shared().latency(Metrics.HTTP_ATTEMPT);
+    private static final LongAdder RETRIES = Metrics.shared().counter(Metrics.RETRIES);
+    private static final LongAdder HEDGES = Metrics.shared().counter(Metrics.HEDGES);
+    private static final LongAdder FAILURES = Metrics.shared().counter(Metrics.HTTP_FAILURES);
+
+    /** With the request timeout from -Dgemini.http.requestTimeoutMs */
+    public ResilientTransport(HttpClient client, RateLimiter requestLimiter, RateLimiter tokenLimiter,
+                              RetryPolicy retryPolicy, CircuitBreaker breaker, Duration hedgeAfter) {
+        this(client, requestLimiter, tokenLimiter, retryPolicy, breaker, hedgeAfter, defaultRequestTimeout());
+    }
+
+    /** @param requestTimeout how long one attempt may wait for the response headers */
+    public ResilientTransport(HttpClient client, RateLimiter requestLimiter, RateLimiter tokenLimiter,
+                              RetryPolicy retryPolicy, CircuitBreaker breaker, Duration hedgeAfter,
+                              Duration requestTimeout) {
+        this.client = client;
+        this.requestLimiter = requestLimiter;
+        this.tokenLimiter = tokenLimiter;
+        this.retryPolicy = retryPolicy;
+        this.breaker = breaker;
+        this.hedgeAfterMillis = hedgeAfter.toMillis();
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Limits and policies from -Dgemini.limit.*, -Dgemini.retry.*, -Dgemini.breaker.*,
+     * -Dgemini.hedge.afterMs and -Dgemini.http.requestTimeoutMs (default 60000)
+     */
+    public static ResilientTransport withDefaults(HttpClient client) {
+        int rpm = Integer.getInteger("gemini.limit.rpm", 60);
+        int tpm = Integer.getInteger("gemini.limit.tpm", 250_000);
+        return new ResilientTransport(client,
+                new RateLimiter(rpm, Math.max(1, rpm / 6)),
+                new RateLimiter(tpm, Math.max(1, tpm / 6)),
+                new RetryPolicy(
+                        Integer.getInteger("gemini.retry.maxAttempts", 4),
+                        Long.getLong("gemini.retry.baseMs", 500),
+                        Long.getLong("gemini.retry.maxMs", 20_000)),
+                new CircuitBreaker(
+                        Integer.getInteger("gemini.breaker.failures", 5),
+                        Long.getLong("gemini.breaker.openMs", 30_000)),
+                Duration.ofMillis(Long.getLong("gemini.hedge.afterMs", 0)),
+                defaultRequestTimeout());
+    }
+
+    private static Duration defaultRequestTimeout() {
+        return Duration.ofMillis(Long.getLong("gemini.http.requestTimeoutMs", 60_000));
+    }
+
+    /**
+     * Sends the request, retrying as the policy allows.
+     * @param estimatedTokens input tokens charged against the per-minute token quota
+     * @param hedge whether a slow call may be raced by a duplicate (never for streams)
+     */
+    public HttpResponse<InputStream> send(HttpRequest request, int estimatedTokens, boolean hedge)
+            throws IOException, InterruptedException {
+        if (request.timeout().isEmpty()) {
+            request = HttpRequest.newBuilder(request, (name, value) -> true).timeout(requestTimeout).build();
+        }
+        for (int attempt = 1; ; attempt++) {
+            GeminiApiException error;
+            if (!breaker.tryAcquire()) {
+                failures.incrementAndGet();
+                FAILURES.increment();
+                throw new GeminiApiException("Gemini is unavailable, retry in "
+                        + (breaker.remainingOpenMillis() / 1000 + 1) + " s", 503, breaker.remainingOpenMillis(), false);
+            }
+            // every way out of this block must settle the breaker, or a half-open trial never ends
+            boolean settled = false;
+            try {
+                requestLimiter.acquire();
+                tokenLimiter.acquire(estimatedTokens);
+
+                long attemptStart = System.nanoTime();
+                try {
+                    HttpResponse<InputStream> response = hedge && hedgeAfterMillis > 0
+                            ? sendHedged(request)
+                            : client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                    ATTEMPT_TIME.recordSince(attemptStart);
+                    if (response.statusCode() / 100 == 2) {
+                        breaker.onSuccess();
+                        settled = true;
+                        return response;
+                    }
+                    error = toException(response);
+                    if (error.isRetryable()) {
+                        breaker.onFailure();
+                    } else {
+                        breaker.onSuccess(); // a 4xx is our mistake, the service itself is fine
+                    }
+                } catch (GeminiApiException e) {
+                    breaker.onFailure();
+                    error = e;
+                } catch (IOException e) {
+                    breaker.onFailure();
+                    error = new GeminiApiException("Network error: " + e.getMessage(), e);
+                }
+                settled = true;
+            } finally {
+                if (!settled) breaker.release(); // interrupted (a cancelled turn) or a RuntimeException
+            }
+
+            if (!error.isRetryable() || attempt >= retryPolicy.getMaxAttempts()) {
+                failures.incrementAndGet();
+                FAILURES.increment();
+                throw error;
+            }
+            long delay = retryPolicy.delayMillis(attempt, error.getRetryAfterMillis());
+            System.err.println("Gemini call failed (" + error.getMessage() + "), retry " + attempt
+                    + " in " + delay + " ms");
+            retries.incrementAndGet();
+            RETRIES.increment();
+            Thread.sleep(delay);
+        }
+    }
+
+    /**
+     * Sends once, and if no response has arrived after hedgeAfterMillis sends a duplicate and
+     * takes whichever answers first. The loser is cancelled and its body closed.
+     */
+    private HttpResponse<InputStream> sendHedged(HttpRequest request) throws IOException, InterruptedException {
+        CompletableFuture<HttpResponse<InputStream>> primary =
+                client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        try {
+            return primary.get(hedgeAfterMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // slow call: race a second copy below
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+
+        hedges.incrementAndGet();
+        HEDGES.increment();
+        CompletableFuture<HttpResponse<InputStream>> backup =
+                client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        CompletableFuture<HttpResponse<InputStream>> first = new CompletableFuture<>();
+        AtomicLong failed = new AtomicLong();
+        for (CompletableFuture<HttpResponse<InputStream>> f : List.of(primary, backup)) {
+            f.whenComplete((response, t) -> {
+                if (t == null) {
+                    if (!first.complete(response)) closeQuietly(response);
+                } else if (failed.incrementAndGet() == 2) {
+                    first.completeExceptionally(t);
+                }
+            });
+        }
+        try {
+            HttpResponse<InputStream> winner = first.get();
+            if (winner != primary.getNow(null)) hedgeWins.incrementAndGet();
+            return winner;
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } finally {
+            primary.cancel(true);
+            backup.cancel(true);
+        }
+    }
+
+    private static IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof IOException io ? io : new IOException(cause);
+    }
+
+    private static void closeQuietly(HttpResponse<InputStream> response) {
+        try {
+            response.body().close();
+        } catch (IOException ignored) {
+            // losing hedge, nothing to do
+        }
+    }
+
+    /** Reads the error body and turns it into an exception carrying any retry hint */
+    private static GeminiApiException toException(HttpResponse<InputStream> response) {
+        int status = response.statusCode();
+        String message = "HTTP " + status;
+        long retryAfter = parseRetryAfter(response.headers().firstValue("Retry-After").orElse(null));
+        try (InputStream in = response.body()) {
+            String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            if (retryAfter < 0) {
+                Matcher m = RETRY_DELAY.matcher(body);
+                if (m.find()) retryAfter = (long) (Double.parseDouble(m.group(1)) * 1000);
+            }
+            GeminiReply reply = ResponseParser.parse(body);
+            if (reply.error() != null) message = reply.error();
+        } catch (IOException | RuntimeException e) {
+            // keep the status line as the message
+        }
+        return new GeminiApiException(message, status, retryAfter, GeminiApiException.isRetryableStatus(status));
+    }
+
+    /** Retry-After is either delta-seconds or an HTTP date */
+    static long parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) return -1;
+        try {
+            return Long.parseLong(value.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, at.toInstant().toEpochMilli() - System.currentTimeMillis());
+            } catch (DateTimeParseException ignored) {
+                return -1;
+            }
+        }
+    }
+
+    public long getRetries() { return retries.get(); }
+    public long getHedges() { return hedges.get(); }
+    public long getHedgeWins() { return hedgeWins.get(); }
+    public long getFailures() { return failures.get(); }
+
+    public CircuitBreaker.State getCircuitState() {
+        return breaker.getState();
+    }
+}
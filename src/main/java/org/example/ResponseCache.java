@@ -0,0 +1,314 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed cache of Gemini replies, keyed by a SHA-256 of everything that goes
+ * into a request. Entries live in a size- and TTL-bounded LRU map; when a directory is
+ * given they are also appended to a log file there that is replayed on startup, a mapped
+ * window at a time, so repeated prompts stay cached across restarts. Once the log has doubled
+ * since it was last compacted (and is past 8 MB), it is rewritten with only the newest
+ * unexpired record of each key, so superseded and expired replies do not pile up.
+ *
+ * <p>Log record layout: 32-byte key, 8-byte write time (epoch millis), 4-byte length, UTF-8 text.
+ */
+public class ResponseCache implements AutoCloseable {
+
+    private static final int KEY_BYTES = 32;
+    private static final int HEADER_BYTES = KEY_BYTES + Long.BYTES + Integer.BYTES;
+    private static final long REPLAY_WINDOW_BYTES = 64L << 20;
+    private static final long COMPACT_MIN_BYTES = 8L << 20;
+
+    private static final ResponseCache SHARED = createShared();
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry> memory;
+
+    // disk tier: key -> position of the newest record for that key
+    private final Path logFile;
+    private FileChannel log;
+    private Map<String, Long> diskIndex = new HashMap<>();
+    private long logEnd;
+    private long compactedBytes; // log size right after the last compaction or replay
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private record Entry(String text, long createdMillis) {}
+
+    public ResponseCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, null);
+    }
+
+    /** @param logFile append-only log for the disk tier, or null for memory only */
+    public ResponseCache(int maxEntries, Duration ttl, Path logFile) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ResponseCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.logFile = logFile;
+        this.log = logFile == null ? null : openLog(logFile);
+    }
+
+    private static ResponseCache createShared() {
+        String dir = System.getProperty("gemini.cache.dir");
+        return new ResponseCache(
+                Integer.getInteger("gemini.cache.maxEntries", 256),
+                Duration.ofMinutes(Long.getLong("gemini.cache.ttlMinutes", 60)),
+                dir == null ? null : Path.of(dir, "responses.log"));
+    }
+
+    public static ResponseCache shared() {
+        return SHARED;
+    }
+
+    /** Hashes the parts of a request into a cache key */
+    public static String key(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update((part == null ? "" : part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0); // separator so ("ab","c") != ("a","bc")
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Hashes a label and an encoded request body into a cache key */
+    public static String key(String label, List<byte[]> body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(label.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            for (byte[] chunk : body) {
+                digest.update(chunk);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Returns the cached reply for the key, or null */
+    public synchronized String get(String key) {
+        long now = System.currentTimeMillis();
+        Entry entry = memory.get(key);
+        if (entry != null) {
+            if (now - entry.createdMillis() <= ttlMillis) {
+                hits.incrementAndGet();
+                return entry.text();
+            }
+            memory.remove(key);
+            evictions.incrementAndGet();
+        }
+
+        Long position = diskIndex.get(key);
+        if (position != null) {
+            Entry stored = readRecord(position);
+            if (stored != null && now - stored.createdMillis() <= ttlMillis) {
+                memory.put(key, stored);
+                hits.incrementAndGet();
+                diskHits.incrementAndGet();
+                return stored.text();
+            }
+            diskIndex.remove(key);
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public synchronized void put(String key, String text) {
+        Entry entry = new Entry(text, System.currentTimeMillis());
+        memory.put(key, entry);
+        if (log != null) {
+            appendRecord(key, entry);
+            if (logEnd >= Math.max(COMPACT_MIN_BYTES, 2 * compactedBytes)) compact();
+        }
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getDiskHits() { return diskHits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getEvictions() { return evictions.get(); }
+
+    public synchronized int size() {
+        return memory.size();
+    }
+
+    public synchronized void clear() {
+        memory.clear();
+    }
+
+    // ===== DISK TIER =====
+
+    private FileChannel openLog(Path logFile) {
+        try {
+            Files.createDirectories(logFile.toAbsolutePath().getParent());
+            FileChannel channel = FileChannel.open(logFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long live = replay(channel);
+            log = channel;
+            compactedBytes = live;
+            if (logEnd >= Math.max(COMPACT_MIN_BYTES, 2 * live)) compact();
+            return log;
+        } catch (IOException e) {
+            System.err.println("Response cache log unavailable, using memory only: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Indexes every complete, unexpired record, mapping at most REPLAY_WINDOW_BYTES at a time;
+     * a torn tail is truncated. Returns the bytes held by the records indexed.
+     */
+    private long replay(FileChannel channel) throws IOException {
+        long size = channel.size();
+        Map<String, Integer> lengths = new HashMap<>();
+        byte[] keyBytes = new byte[KEY_BYTES];
+        long now = System.currentTimeMillis();
+        MappedByteBuffer window = null;
+        long windowStart = 0;
+        long position = 0;
+        while (size - position >= HEADER_BYTES) {
+            if (window == null || position + HEADER_BYTES > windowStart + window.limit()) {
+                windowStart = position;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(REPLAY_WINDOW_BYTES, size - position));
+            }
+            int at = (int) (position - windowStart);
+            window.get(at, keyBytes);
+            long created = window.getLong(at + KEY_BYTES);
+            int length = window.getInt(at + KEY_BYTES + Long.BYTES);
+            if (length < 0 || length > size - position - HEADER_BYTES) break;
+            String key = HexFormat.of().formatHex(keyBytes);
+            if (now - created <= ttlMillis) {
+                diskIndex.put(key, position);
+                lengths.put(key, length);
+            } else {
+                diskIndex.remove(key);
+                lengths.remove(key);
+            }
+            position += HEADER_BYTES + length;
+        }
+        if (position < size) {
+            channel.truncate(position);
+        }
+        channel.position(position);
+        logEnd = position;
+        long live = 0;
+        for (int length : lengths.values()) live += HEADER_BYTES + length;
+        return live;
+    }
+
+    /**
+     * Rewrites the log with only the newest unexpired record of each key, through AtomicFiles,
+     * so a crash leaves the old log whole. On failure the old log stays in use.
+     */
+    private void compact() {
+        Map<String, Long> moved = new HashMap<>();
+        long[] written = {0};
+        try {
+            long now = System.currentTimeMillis();
+            AtomicFiles.write(logFile, out -> {
+                for (Map.Entry<String, Long> indexed : diskIndex.entrySet()) {
+                    Entry entry = readRecord(indexed.getValue());
+                    if (entry == null || now - entry.createdMillis() > ttlMillis) continue;
+                    ByteBuffer record = encode(indexed.getKey(), entry);
+                    moved.put(indexed.getKey(), written[0]);
+                    out.write(record.array());
+                    written[0] += record.limit();
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Failed to compact the response cache log: " + e.getMessage());
+            compactedBytes = logEnd; // do not retry on every put
+            return;
+        }
+        try {
+            log.close();
+            log = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            diskIndex = moved;
+            logEnd = written[0];
+            compactedBytes = written[0];
+        } catch (IOException e) {
+            System.err.println("Response cache log unavailable, using memory only: " + e.getMessage());
+            log = null;
+            diskIndex.clear();
+        }
+    }
+
+    private Entry readRecord(long position) {
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            log.read(header, position);
+            header.flip();
+            header.position(KEY_BYTES);
+            long created = header.getLong();
+            ByteBuffer text = ByteBuffer.allocate(header.getInt());
+            log.read(text, position + HEADER_BYTES);
+            return new Entry(new String(text.array(), StandardCharsets.UTF_8), created);
+        } catch (IOException e) {
+            System.err.println("Failed to read cached response: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static ByteBuffer encode(String key, Entry entry) {
+        byte[] text = entry.text().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + text.length);
+        record.put(HexFormat.of().parseHex(key));
+        record.putLong(entry.createdMillis());
+        record.putInt(text.length);
+        record.put(text);
+        record.flip();
+        return record;
+    }
+
+    private void appendRecord(String key, Entry entry) {
+        ByteBuffer record = encode(key, entry);
+        try {
+            long position = logEnd;
+            while (record.hasRemaining()) {
+                log.write(record, position + record.position());
+            }
+            diskIndex.put(key, position);
+            logEnd = position + record.limit();
+        } catch (IOException e) {
+            System.err.println("Failed to persist cached response: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (log != null) log.close();
+    }
+}
@@ -0,0 +1,178 @@
+package org.example;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Single-pass pull parser for generateContent responses. It reads straight from the HTTP
+ * body, keeps only candidates[0] text parts, finishReason, usageMetadata and error details,
+ * and skips everything else (safety ratings, citations, other candidates) without building
+ * a JSON tree.
+ */
+public final class ResponseParser {
+
+    private ResponseParser() {}
+
+    public static GeminiReply parse(InputStream in) throws IOException {
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    public static GeminiReply parse(String body) throws IOException {
+        return parse(new StringReader(body));
+    }
+
+    public static GeminiReply parse(Reader in) throws IOException {
+        return parse(in, false);
+    }
+
+    /**
+     * One streamed chunk. Chunks may carry no text at all, like the usage-only one that ends
+     * a stream, so anything short of an API error is a (possibly empty) delta.
+     */
+    public static GeminiReply parseChunk(String payload) throws IOException {
+        return parse(new StringReader(payload), true);
+    }
+
+    private static GeminiReply parse(Reader in, boolean chunk) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        Result result = new Result();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "error" -> readError(reader, result);
+                case "candidates" -> readCandidates(reader, result);
+                case "usageMetadata" -> readUsage(reader, result);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return chunk ? result.toDelta() : result.toReply();
+    }
+
+    private static void readError(JsonReader reader, Result result) throws IOException {
+        result.error = "Unknown API error";
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("message") && reader.peek() == JsonToken.STRING) {
+                result.error = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void readCandidates(JsonReader reader, Result result) throws IOException {
+        result.sawCandidates = true;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (result.candidateCount++ == 0) {
+                readCandidate(reader, result);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endArray();
+    }
+
+    private static void readCandidate(JsonReader reader, Result result) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "content" -> readContent(reader, result);
+                case "finishReason" -> result.finishReason = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void readContent(JsonReader reader, Result result) throws IOException {
+        result.sawContent = true;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("parts")) {
+                reader.skipValue();
+                continue;
+            }
+            result.sawParts = true;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                result.partCount++;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("text")) {
+                        result.text.append(reader.nextString());
+                        result.sawText = true;
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+    }
+
+    private static void readUsage(JsonReader reader, Result result) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "promptTokenCount" -> result.promptTokens = reader.nextInt();
+                case "candidatesTokenCount" -> result.outputTokens = reader.nextInt();
+                case "totalTokenCount" -> result.totalTokens = reader.nextInt();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static class Result {
+        String error;
+        boolean sawCandidates, sawContent, sawParts, sawText;
+        int candidateCount, partCount;
+        final StringBuilder text = new StringBuilder();
+        String finishReason;
+        int promptTokens, outputTokens, totalTokens;
+
+        GeminiReply toReply() {
+            // Handle API errors gracefully
+            if (error != null) {
+                System.err.println("Gemini API error: " + error);
+                return new GeminiReply("[Error: " + error + "]", false, error, null, 0, 0, 0);
+            }
+            if (!sawCandidates) {
+                System.err.println("No candidates field in response");
+                return failure("[No candidates in response]");
+            }
+            if (candidateCount == 0) {
+                System.err.println("Empty candidates array in response");
+                return failure("[Empty response]");
+            }
+            if (!sawContent) return failure("[No content in candidate]");
+            if (!sawParts) return failure("[No parts in content]");
+            if (partCount == 0) return failure("[Empty parts array]");
+            if (!sawText) return failure("[No text in response]");
+            return new GeminiReply(text.toString(), true, null, finishReason, promptTokens, outputTokens, totalTokens);
+        }
+
+        GeminiReply toDelta() {
+            if (error != null) return toReply();
+            return new GeminiReply(text.toString(), true, null, finishReason, promptTokens, outputTokens, totalTokens);
+        }
+
+        private GeminiReply failure(String placeholder) {
+            return new GeminiReply(placeholder, false, null, finishReason, promptTokens, outputTokens, totalTokens);
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Headless HTTP API over {@link GeminiServer}, on the JDK's built-in server with one virtual
+ * thread per exchange, so a turn simply blocks its own thread while Gemini answers.
+ *
+ * <pre>
+ * POST   /sessions[?stream=true]                 UserInfo JSON → first draft; 201 with Location
+ * POST   /sessions/{id}/messages[?stream=true]   {"message": "..."} → {"reply": "..."}
+ * GET    /sessions/{id}/resume.docx              latest resume as DOCX
+ * GET    /sessions/{id}/versions                 [{"version": n, "created": millis}, ...]
+ * GET    /sessions/{id}/versions/{n}.docx        draft n (from 1) as DOCX
+ * DELETE /sessions/{id}
+ * GET    /metrics                                the Metrics JSON
+ * </pre>
+ * With stream=true the reply is sent as chunked text/plain, delta by delta; a turn that fails
+ * before its first delta still gets a JSON error. More than --max-turns turns at once are
+ * turned away with 503.
+ *
+ * <pre>
+ * java org.example.ResumeApiServer [--port 8080] [--api-url URL] [--out dir] [--max-turns 64]
+ * </pre>
+ */
+public class ResumeApiServer implements AutoCloseable {
+
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final Gson GSON = new Gson();
+
+    /** What the API keeps per session besides the engine's own state */
+    private record Entry(Session session, UserInfo user, Path docx) { }
+
+    private final GeminiServer engine;
+    private final Path outputDir;
+    private final Semaphore turns;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpServer server;
+
+    public ResumeApiServer(GeminiServer engine, InetSocketAddress address, Path outputDir, int maxTurns)
+            throws IOException {
+        this.engine = engine;
+        this.outputDir = outputDir;
+        this.turns = new Semaphore(maxTurns);
+        Files.createDirectories(outputDir);
+        server = HttpServer.create(address, 0);
+        server.createContext("/sessions", this::handleSessions);
+        server.createContext("/metrics", this::handleMetrics);
+        server.setExecutor(executor);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = BatchResumeGenerator.parseArgs(args);
+        GeminiServer engine = opts.containsKey("api-url")
+                ? new GeminiServer(StartupTasks.API_KEY_PATH, GeminiServer.Mode.REFINEMENT,
+                        GeminiServer.sharedHttpClient(), opts.get("api-url"))
+                : new GeminiServer(StartupTasks.API_KEY_PATH, GeminiServer.Mode.REFINEMENT);
+        Path out = opts.containsKey("out") ? Path.of(opts.get("out")) : Files.createTempDirectory("resume-api");
+
+        ResumeApiServer api = new ResumeApiServer(engine,
+                new InetSocketAddress(Integer.parseInt(opts.getOrDefault("port", "8080"))),
+                out, Integer.parseInt(opts.getOrDefault("max-turns", "64")));
+        api.start();
+        System.out.println("Resume API listening on port " + api.getPort() + ", DOCX files in " + out);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // ===== ROUTING =====
+
+    private void handleSessions(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                // "", "sessions", id, action
+                String[] path = exchange.getRequestURI().getPath().split("/");
+                String method = exchange.getRequestMethod();
+                boolean stream = "true".equals(queryParams(exchange).get("stream"));
+
+                if (path.length == 2 && method.equals("POST")) {
+                    createSession(exchange, stream);
+                    return;
+                }
+                Entry entry = path.length >= 3 ? lookup(path[2]) : null;
+                if (entry == null) {
+                    sendError(exchange, 404, "No such session");
+                } else if (path.length == 3 && method.equals("DELETE")) {
+                    closeSession(entry);
+                    exchange.sendResponseHeaders(204, -1);
+                } else if (path.length == 4 && path[3].equals("messages") && method.equals("POST")) {
+                    sendMessage(exchange, entry, stream);
+                } else if (path.length == 4 && path[3].equals("resume.docx") && method.equals("GET")) {
+                    downloadDocx(exchange, entry, entry.session().getLatestResumeText());
+                } else if (path.length == 4 && path[3].equals("versions") && method.equals("GET")) {
+                    listVersions(exchange, entry);
+                } else if (path.length == 5 && path[3].equals("versions") && path[4].endsWith(".docx")
+                        && method.equals("GET")) {
+                    downloadVersion(exchange, entry, path[4].substring(0, path[4].length() - ".docx".length()));
+                } else {
+                    sendError(exchange, 405, method + " not supported on " + exchange.getRequestURI().getPath());
+                }
+            } catch (RuntimeException e) {
+                internalError(exchange, e);
+            }
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                sendJson(exchange, 200, Metrics.shared().getJson());
+            } catch (RuntimeException e) {
+                internalError(exchange, e);
+            }
+        }
+    }
+
+    /** A bug or bad input nothing caught: 500 if the response has not started, else just drop it */
+    private static void internalError(HttpExchange exchange, RuntimeException e) throws IOException {
+        e.printStackTrace();
+        if (exchange.getResponseCode() == -1) {
+            sendError(exchange, 500, "Internal error: " + e);
+        }
+    }
+
+    /** The entry for id; forgets it if the engine has since evicted the session */
+    private Entry lookup(String id) {
+        Entry entry = entries.get(id);
+        if (entry != null && engine.getSession(id) == null) {
+            entries.remove(id);
+            return null;
+        }
+        return entry;
+    }
+
+    // ===== ENDPOINTS =====
+
+    private void createSession(HttpExchange exchange, boolean stream) throws IOException {
+        UserInfo user;
+        try (InputStreamReader body = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            UserInfo parsed = GSON.fromJson(body, UserInfo.class);
+            if (parsed == null) throw new JsonParseException("empty body");
+            user = BatchResumeGenerator.normalize(parsed);
+        } catch (JsonParseException e) {
+            sendError(exchange, 400, "Expected UserInfo JSON: " + e.getMessage());
+            return;
+        }
+
+        Session session = engine.createSession(GeminiServer.Mode.REFINEMENT);
+        Entry entry = new Entry(session, user, outputDir.resolve(session.getId() + ".docx"));
+        exchange.getResponseHeaders().set("Location", "/sessions/" + session.getId());
+        entries.put(session.getId(), entry); // before the stream ends, so the Location works at once
+        String reply = null;
+        try {
+            reply = runTurn(exchange, entry, user.toResumePrompt(), stream, 201);
+        } finally {
+            if (reply == null) closeSession(entry);
+        }
+        if (!stream && reply != null) {
+            JsonObject json = new JsonObject();
+            json.addProperty("id", session.getId());
+            json.addProperty("resume", reply);
+            sendJson(exchange, 201, json.toString());
+        }
+    }
+
+    private void sendMessage(HttpExchange exchange, Entry entry, boolean stream) throws IOException {
+        String message;
+        try (InputStreamReader body = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            JsonObject json = JsonParser.parseReader(body).getAsJsonObject();
+            message = json.has("message") ? json.get("message").getAsString() : "";
+        } catch (JsonParseException | IllegalStateException | UnsupportedOperationException e) {
+            sendError(exchange, 400, "Expected {\"message\": \"...\"}");
+            return;
+        }
+        if (message.isBlank()) {
+            sendError(exchange, 400, "Empty message");
+            return;
+        }
+
+        String reply = runTurn(exchange, entry, message, stream, 200);
+        if (reply != null && !stream) {
+            JsonObject json = new JsonObject();
+            json.addProperty("reply", reply);
+            sendJson(exchange, 200, json.toString());
+        }
+    }
+
+    /**
+     * Runs one turn, streaming it to the client if asked. Returns the reply, or null once an
+     * error has been sent. Streamed replies are complete on return; the rest are not yet sent.
+     */
+    private String runTurn(HttpExchange exchange, Entry entry, String message, boolean stream, int status)
+            throws IOException {
+        if (!turns.tryAcquire()) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, "Too many turns in progress");
+            return null;
+        }
+        ChunkedText out = stream ? new ChunkedText(exchange, status) : null;
+        try {
+            String reply = stream
+                    ? engine.sendUserMessageStreaming(entry.session(), message, out::write)
+                    : engine.sendUserMessage(entry.session(), message);
+            entry.session().setLatestResumeText(reply);
+            if (stream) out.finish();
+            return reply;
+        } catch (IOException e) {
+            if (out != null && out.started) throw e; // mid-stream; all we can do is cut the response short
+            sendError(exchange, 502, e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Interrupted");
+            return null;
+        } finally {
+            turns.release();
+        }
+    }
+
+    private void listVersions(HttpExchange exchange, Entry entry) throws IOException {
+        ResumeVersions versions = entry.session().getVersions();
+        JsonArray list = new JsonArray();
+        for (int v = 1; v <= versions.size(); v++) {
+            JsonObject item = new JsonObject();
+            item.addProperty("version", v);
+            item.addProperty("created", versions.createdMillis(v));
+            list.add(item);
+        }
+        sendJson(exchange, 200, list.toString());
+    }
+
+    private void downloadVersion(HttpExchange exchange, Entry entry, String number) throws IOException {
+        String text;
+        try {
+            text = entry.session().getVersions().get(Integer.parseInt(number));
+        } catch (IllegalArgumentException e) { // also NumberFormatException
+            sendError(exchange, 404, "No version " + number);
+            return;
+        }
+        downloadDocx(exchange, entry, text);
+    }
+
+    private void downloadDocx(HttpExchange exchange, Entry entry, String text) throws IOException {
+        if (text == null || text.isEmpty()) {
+            sendError(exchange, 409, "No resume yet");
+            return;
+        }
+        byte[] docx;
+        // the next export replaces the file, so read it back before another one starts
+        synchronized (entry) {
+            engine.getExporter().write(ResumeDocument.fromReply(entry.user(), text), ExportFormat.DOCX, entry.docx());
+            docx = Files.readAllBytes(entry.docx());
+        }
+        exchange.getResponseHeaders().set("Content-Type",
+                "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+        String name = entry.user().getName();
+        exchange.getResponseHeaders().set("Content-Disposition",
+                attachment(name == null || name.isBlank() ? "AI_Resume.docx" : name + "_AI_Resume.docx"));
+        exchange.sendResponseHeaders(200, docx.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(docx);
+        }
+    }
+
+    private void closeSession(Entry entry) throws IOException {
+        entries.remove(entry.session().getId());
+        engine.closeSession(entry.session().getId());
+        synchronized (entry) {
+            Files.deleteIfExists(entry.docx());
+        }
+    }
+
+    // ===== RESPONSES =====
+
+    /** Chunked text/plain body; headers go out with the first delta, so errors before it can still be JSON */
+    private static final class ChunkedText {
+        private final HttpExchange exchange;
+        private final int status;
+        private OutputStream out;
+        boolean started;
+
+        ChunkedText(HttpExchange exchange, int status) {
+            this.exchange = exchange;
+            this.status = status;
+        }
+
+        void write(String delta) {
+            try {
+                if (!started) {
+                    started = true;
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                    exchange.sendResponseHeaders(status, 0);
+                    out = exchange.getResponseBody();
+                }
+                out.write(delta.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // client went away; fails the turn
+            }
+        }
+
+        /** Ends the body; a reply served whole (from the cache) still gets a response */
+        void finish() throws IOException {
+            if (!started) write("");
+            out.close();
+        }
+    }
+
+    /**
+     * Content-Disposition for a download named after user input: a plain ASCII filename for old
+     * clients, with anything outside letters, digits, '.', '-' and '_' replaced, and the exact
+     * name as RFC 5987 UTF-8 for the rest. Nothing from the name reaches the header unencoded.
+     */
+    static String attachment(String fileName) {
+        String ascii = fileName.replaceAll("\\s+", "_").replaceAll("[^A-Za-z0-9._-]", "_");
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : fileName.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if (c < 0x80 && (Character.isLetterOrDigit(c) || "!#$&+-.^_`|~".indexOf(c) >= 0)) {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(String.format("%02X", b & 0xff));
+            }
+        }
+        return "attachment; filename=\"" + ascii + "\"; filename*=UTF-8''" + encoded;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        JsonObject json = new JsonObject();
+        json.addProperty("error", String.valueOf(message));
+        sendJson(exchange, status, json.toString());
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) params.put(pair.substring(0, eq), pair.substring(eq + 1));
+        }
+        return params;
+    }
+}
@@ -0,0 +1,87 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What goes on the page, independent of the file format: the header plus titled sections.
+ * Renderers only ever see this model, never the raw Gemini reply.
+ */
+public record ResumeDocument(String name, String contact, List<Section> sections, String footer) {
+
+    public static final String FOOTER = "Generated by HackQU AI Resume Builder";
+
+    /** A titled block whose lines are either bullets or plain paragraphs */
+    public record Section(String title, List<String> lines, boolean bulleted) {
+        public Section {
+            lines = List.copyOf(lines);
+        }
+    }
+
+    public ResumeDocument {
+        sections = List.copyOf(sections);
+    }
+
+    /** The AI resume from a free-text reply */
+    public static ResumeDocument fromReply(UserInfo user, String resumeText) {
+        return fromParsed(user, ResumeTextParser.parse(resumeText));
+    }
+
+    /**
+     * The AI resume: every section the reply contains, in the usual resume order. Skills fall
+     * back to the user's own qualifications; a section the reply lacks is left out.
+     */
+    public static ResumeDocument fromParsed(UserInfo user, ParsedResume parsed) {
+        List<Section> sections = new ArrayList<>();
+        addSection(sections, "Summary", parsed.summary().isEmpty() ? List.of() : List.of(parsed.summary()), false);
+        addSection(sections, "Education", parsed.education(), false);
+        addSection(sections, "Skills", parsed.skills().isEmpty()
+                ? ResumeTextParser.splitItems(user.getQuals(), '.')
+                : parsed.skills(), true);
+        addSection(sections, "Experience", entryLines(parsed.experience()), true);
+        addSection(sections, "Projects", entryLines(parsed.projects()), true);
+        sections.addAll(parsed.extras());
+        return new ResumeDocument(user.getName(), contactLine(user), sections, FOOTER);
+    }
+
+    /** The plain resume straight from the form, without Gemini */
+    public static ResumeDocument fromForm(UserInfo user) {
+        return new ResumeDocument(user.getName(), contactLine(user), List.of(
+                new Section("About Me", List.of(user.getAbout()), false),
+                new Section("Qualifications", List.of(user.getQuals()), false)), FOOTER);
+    }
+
+    private static String contactLine(UserInfo user) {
+        return user.getCityState() + " | " + user.getEmail() + " | " + user.getPhone();
+    }
+
+    private static void addSection(List<Section> sections, String title, List<String> lines, boolean bulleted) {
+        if (!lines.isEmpty()) sections.add(new Section(title, lines, bulleted));
+    }
+
+    private static List<String> entryLines(List<ParsedResume.Entry> entries) {
+        List<String> lines = new ArrayList<>(entries.size());
+        for (ParsedResume.Entry entry : entries) lines.add(entry.toText());
+        return lines;
+    }
+
+    /** Slot values for {@link DocxTemplate}: name, contact, footer and a sections loop */
+    public Map<String, Object> toSlots() {
+        List<Map<String, Object>> sectionSlots = new ArrayList<>(sections.size());
+        for (Section section : sections) {
+            Map<String, Object> slots = new LinkedHashMap<>();
+            slots.put("title", section.title());
+            slots.put("bullets", section.bulleted() ? section.lines() : List.of());
+            slots.put("paragraphs", section.bulleted() ? List.of() : section.lines());
+            sectionSlots.add(slots);
+        }
+        Map<String, Object> slots = new LinkedHashMap<>();
+        slots.put("name", name);
+        slots.put("contact", contact);
+        slots.put("sections", sectionSlots);
+        slots.put("footer", footer);
+        return slots;
+    }
+}
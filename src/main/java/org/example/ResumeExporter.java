@@ -0,0 +1,177 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Writes one ResumeDocument in several formats at once. Each format renders on its own
+ * worker of a small bounded pool and lands through {@link AtomicFiles}, so exporting DOCX,
+ * PDF and TXT together takes about as long as the slowest of them.
+ *
+ * <p>With the template renderer, DOCX goes through an {@link IncrementalDocxExporter}: a
+ * refinement that touched one section re-renders only that section and copies the static
+ * parts from the previous file. Turn it off with -Dgemini.export.incremental=false. How often
+ * it applied, how many sections it reused and how many bytes it rendered are counted in
+ * {@link Metrics}; export.bytes counts every byte put on disk.
+ */
+public class ResumeExporter {
+
+    public static final Set<ExportFormat> DEFAULT_FORMATS = EnumSet.of(ExportFormat.DOCX, ExportFormat.PDF, ExportFormat.TXT);
+
+    private static final ResumeExporter SHARED = new ResumeExporter(
+            Integer.getInteger("gemini.export.threads", Math.min(4, Runtime.getRuntime().availableProcessors())));
+
+    private final ExecutorService executor;
+    private volatile DocxRenderer docxRenderer;
+    private volatile boolean incremental = Boolean.parseBoolean(System.getProperty("gemini.export.incremental", "true"));
+    private volatile IncrementalDocxExporter incrementalDocx;
+    private final LongAdder bytesWritten = new LongAdder();
+
+    private static final Map<ExportFormat, LatencyRecorder> WRITE_TIME = new EnumMap<>(ExportFormat.class);
+    private static final LongAdder EXPORT_BYTES = Metrics.shared().counter(Metrics.EXPORT_BYTES);
+    private static final LongAdder DOCX_INCREMENTAL = Metrics.shared().counter(Metrics.DOCX_INCREMENTAL);
+    private static final LongAdder DOCX_SECTIONS_REUSED = Metrics.shared().counter(Metrics.DOCX_SECTIONS_REUSED);
+    private static final LongAdder DOCX_SECTIONS_RENDERED = Metrics.shared().counter(Metrics.DOCX_SECTIONS_RENDERED);
+    private static final LongAdder DOCX_BYTES_RENDERED = Metrics.shared().counter(Metrics.DOCX_BYTES_RENDERED);
+    static {
+        for (ExportFormat format : ExportFormat.values()) {
+            WRITE_TIME.put(format, Metrics.shared().latency(Metrics.EXPORT + format.getExtension()));
+        }
+    }
+
+    public ResumeExporter(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "resume-export-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Process-wide exporter sized by -Dgemini.export.threads (default: cores, at most 4) */
+    public static ResumeExporter shared() {
+        return SHARED;
+    }
+
+    public DocxRenderer getDocxRenderer() {
+        DocxRenderer renderer = docxRenderer;
+        return renderer != null ? renderer : DocxRenderer.defaultRenderer();
+    }
+
+    /** Overrides the DOCX renderer; null restores the default */
+    public void setDocxRenderer(DocxRenderer docxRenderer) {
+        this.docxRenderer = docxRenderer;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /** Total bytes this exporter has put on disk, across all formats */
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * Writes baseName.ext into outputDir for every requested format, in parallel.
+     * @throws IllegalArgumentException if baseName would put a file anywhere but outputDir
+     * @return the files written; a format that failed is logged and left out
+     */
+    public Map<ExportFormat, Path> export(ResumeDocument resume, Path outputDir, String baseName,
+                                          Set<ExportFormat> formats) {
+        return export(resume, outputDir, baseName, formats, (format, path) -> { });
+    }
+
+    /** As above, calling onWritten from the worker as each file lands */
+    public Map<ExportFormat, Path> export(ResumeDocument resume, Path outputDir, String baseName,
+                                          Set<ExportFormat> formats, BiConsumer<ExportFormat, Path> onWritten) {
+        Map<ExportFormat, CompletableFuture<Path>> pending = new EnumMap<>(ExportFormat.class);
+        for (ExportFormat format : formats) {
+            Path target = outputDir.resolve(baseName + "." + format.getExtension());
+            if (!outputDir.equals(target.getParent())) {
+                throw new IllegalArgumentException("Not a plain file name: " + baseName);
+            }
+            pending.put(format, CompletableFuture.supplyAsync(() -> {
+                Path written = write(resume, format, target);
+                onWritten.accept(format, written);
+                return written;
+            }, executor));
+        }
+
+        Map<ExportFormat, Path> written = new EnumMap<>(ExportFormat.class);
+        pending.forEach((format, future) -> {
+            try {
+                written.put(format, future.join());
+            } catch (CompletionException e) {
+                System.err.println("Export to " + format + " failed:");
+                e.getCause().printStackTrace();
+            }
+        });
+        return written;
+    }
+
+    /** Writes a single format on the calling thread */
+    public Path write(ResumeDocument resume, ExportFormat format, Path target) {
+        long startNanos = System.nanoTime();
+        try {
+            if (format == ExportFormat.DOCX && incremental && getDocxRenderer() instanceof DocxTemplate template) {
+                IncrementalDocxExporter.ExportResult result = incrementalExporter(template).export(resume, target);
+                recordWrite(format, startNanos, result.bytesWritten());
+                if (result.incremental()) DOCX_INCREMENTAL.increment();
+                DOCX_SECTIONS_REUSED.add(result.sectionsReused());
+                DOCX_SECTIONS_RENDERED.add(result.sectionsRendered());
+                DOCX_BYTES_RENDERED.add(result.bytesRendered());
+                return target;
+            }
+            AtomicFiles.write(target, out -> {
+                switch (format) {
+                    case DOCX -> getDocxRenderer().write(resume, out);
+                    case PDF -> PdfResumeRenderer.write(resume, out);
+                    case TXT -> TextResumeRenderer.writeText(resume, out);
+                    case MARKDOWN -> TextResumeRenderer.writeMarkdown(resume, out);
+                }
+            });
+            recordWrite(format, startNanos, Files.size(target));
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void recordWrite(ExportFormat format, long startNanos, long bytes) {
+        WRITE_TIME.get(format).recordSince(startNanos);
+        bytesWritten.add(bytes);
+        EXPORT_BYTES.add(bytes);
+    }
+
+    private IncrementalDocxExporter incrementalExporter(DocxTemplate template) {
+        IncrementalDocxExporter exporter = incrementalDocx;
+        if (exporter == null || exporter.getTemplate() != template) {
+            synchronized (this) {
+                exporter = incrementalDocx;
+                if (exporter == null || exporter.getTemplate() != template) {
+                    exporter = new IncrementalDocxExporter(template);
+                    incrementalDocx = exporter;
+                }
+            }
+        }
+        return exporter;
+    }
+}
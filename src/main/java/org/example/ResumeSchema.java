@@ -0,0 +1,201 @@
+package org.example;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Structured output for resume turns: the generationConfig that makes Gemini answer with JSON
+ * matching a resume schema, and a pull decoder from that JSON straight to a ParsedResume.
+ * No text scraping is involved, so the same reply always exports the same document.
+ */
+public final class ResumeSchema {
+
+    // encoded once; appended to every structured request as "generationConfig"
+    private static final byte[] GENERATION_CONFIG = encodeGenerationConfig();
+
+    private ResumeSchema() {}
+
+    public static byte[] generationConfig() {
+        return GENERATION_CONFIG;
+    }
+
+    private static byte[] encodeGenerationConfig() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        try (JsonWriter w = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            w.beginObject().name("responseMimeType").value("application/json").name("responseSchema");
+            w.beginObject().name("type").value("OBJECT").name("properties").beginObject();
+            w.name("name"); string(w);
+            w.name("contact"); string(w);
+            w.name("summary"); string(w);
+            w.name("education"); stringArray(w);
+            w.name("skills"); stringArray(w);
+            w.name("experience"); entryArray(w);
+            w.name("projects"); entryArray(w);
+            w.name("otherSections").beginObject().name("type").value("ARRAY").name("items")
+                    .beginObject().name("type").value("OBJECT").name("properties").beginObject();
+            w.name("title"); string(w);
+            w.name("lines"); stringArray(w);
+            w.endObject().name("required").beginArray().value("title").value("lines").endArray()
+                    .endObject().endObject();
+            w.endObject(); // properties
+            w.name("required").beginArray()
+                    .value("summary").value("education").value("skills").value("experience").value("projects")
+                    .endArray();
+            w.name("propertyOrdering").beginArray()
+                    .value("name").value("contact").value("summary").value("education").value("skills")
+                    .value("experience").value("projects").value("otherSections")
+                    .endArray();
+            w.endObject(); // responseSchema
+            w.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory stream, cannot happen
+        }
+        return out.toByteArray();
+    }
+
+    private static void string(JsonWriter w) throws IOException {
+        w.beginObject().name("type").value("STRING").endObject();
+    }
+
+    private static void stringArray(JsonWriter w) throws IOException {
+        w.beginObject().name("type").value("ARRAY").name("items");
+        string(w);
+        w.endObject();
+    }
+
+    private static void entryArray(JsonWriter w) throws IOException {
+        w.beginObject().name("type").value("ARRAY").name("items")
+                .beginObject().name("type").value("OBJECT").name("properties").beginObject();
+        w.name("title"); string(w);
+        w.name("details"); stringArray(w);
+        w.endObject().name("required").beginArray().value("title").endArray()
+                .endObject().endObject();
+    }
+
+    // ===== DECODE =====
+
+    public static ParsedResume decode(String json) throws IOException {
+        return decode(new StringReader(json));
+    }
+
+    /** Reads a reply that follows the schema; unknown fields are skipped, missing ones come back empty */
+    public static ParsedResume decode(Reader json) throws IOException {
+        List<String> header = new ArrayList<>(2);
+        String name = "";
+        String contact = "";
+        String summary = "";
+        List<String> education = List.of();
+        List<String> skills = List.of();
+        List<ParsedResume.Entry> experience = List.of();
+        List<ParsedResume.Entry> projects = List.of();
+        List<ResumeDocument.Section> extras = List.of();
+
+        try (JsonReader reader = new JsonReader(json)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "name" -> name = nextString(reader);
+                    case "contact" -> contact = nextString(reader);
+                    case "summary" -> summary = nextString(reader);
+                    case "education" -> education = stringArray(reader);
+                    case "skills" -> skills = stringArray(reader);
+                    case "experience" -> experience = entryArray(reader);
+                    case "projects" -> projects = entryArray(reader);
+                    case "otherSections" -> extras = sectionArray(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Reply does not match the resume schema: " + e.getMessage(), e);
+        }
+
+        if (!name.isBlank()) header.add(name.trim());
+        if (!contact.isBlank()) header.add(contact.trim());
+        return new ParsedResume(header, summary.trim(), education, skills, experience, projects, extras);
+    }
+
+    private static String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return "";
+        }
+        return reader.nextString();
+    }
+
+    private static List<String> stringArray(JsonReader reader) throws IOException {
+        List<String> values = new ArrayList<>();
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return values;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String value = nextString(reader).trim();
+            if (!value.isEmpty()) values.add(value);
+        }
+        reader.endArray();
+        return values;
+    }
+
+    private static List<ParsedResume.Entry> entryArray(JsonReader reader) throws IOException {
+        List<ParsedResume.Entry> entries = new ArrayList<>();
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return entries;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String title = "";
+            List<String> details = List.of();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "title" -> title = nextString(reader).trim();
+                    case "details" -> details = stringArray(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (!title.isEmpty()) entries.add(new ParsedResume.Entry(title, details));
+        }
+        reader.endArray();
+        return entries;
+    }
+
+    private static List<ResumeDocument.Section> sectionArray(JsonReader reader) throws IOException {
+        List<ResumeDocument.Section> sections = new ArrayList<>();
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return sections;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String title = "";
+            List<String> lines = List.of();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "title" -> title = nextString(reader).trim();
+                    case "lines" -> lines = stringArray(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (!title.isEmpty() && !lines.isEmpty()) sections.add(new ResumeDocument.Section(title, lines, true));
+        }
+        reader.endArray();
+        return sections;
+    }
+}
@@ -0,0 +1,267 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Splits a resume reply into a {@link ParsedResume} in one pass over the text. Each line is
+ * either a heading, which moves the automaton to that section, or content for the current
+ * section. Only a line that is nothing but a heading (optionally with markdown #, ** or a
+ * trailing colon) counts, so "experience" inside a sentence never starts a section.
+ */
+public final class ResumeTextParser {
+
+    private enum Part { HEADER, SUMMARY, EDUCATION, SKILLS, EXPERIENCE, PROJECTS, OTHER }
+
+    private static final int MAX_HEADING_CHARS = 40;
+
+    private static final Map<String, Part> HEADINGS = Map.ofEntries(
+            Map.entry("summary", Part.SUMMARY),
+            Map.entry("professional summary", Part.SUMMARY),
+            Map.entry("profile", Part.SUMMARY),
+            Map.entry("objective", Part.SUMMARY),
+            Map.entry("about", Part.SUMMARY),
+            Map.entry("about me", Part.SUMMARY),
+            Map.entry("education", Part.EDUCATION),
+            Map.entry("skills", Part.SKILLS),
+            Map.entry("technical skills", Part.SKILLS),
+            Map.entry("skills & qualifications", Part.SKILLS),
+            Map.entry("qualifications", Part.SKILLS),
+            Map.entry("experience", Part.EXPERIENCE),
+            Map.entry("work experience", Part.EXPERIENCE),
+            Map.entry("professional experience", Part.EXPERIENCE),
+            Map.entry("relevant experience", Part.EXPERIENCE),
+            Map.entry("employment", Part.EXPERIENCE),
+            Map.entry("projects", Part.PROJECTS),
+            Map.entry("personal projects", Part.PROJECTS),
+            Map.entry("selected projects", Part.PROJECTS));
+
+    private Part part = Part.HEADER;
+
+    private final List<String> header = new ArrayList<>();
+    private final StringBuilder summary = new StringBuilder();
+    private final List<String> education = new ArrayList<>();
+    private final List<String> skills = new ArrayList<>();
+    private final List<EntryBuilder> experience = new ArrayList<>();
+    private final List<EntryBuilder> projects = new ArrayList<>();
+    private final List<ExtraBuilder> extras = new ArrayList<>();
+
+    private static final class EntryBuilder {
+        final String title;
+        final List<String> details = new ArrayList<>();
+        // a title line owns the bullets below it; a bullet that opened the entry only owns indented ones
+        final boolean fromTitleLine;
+
+        EntryBuilder(String title, boolean fromTitleLine) {
+            this.title = title;
+            this.fromTitleLine = fromTitleLine;
+        }
+    }
+
+    private static final class ExtraBuilder {
+        final String title;
+        final List<String> lines = new ArrayList<>();
+        boolean bulleted;
+
+        ExtraBuilder(String title) {
+            this.title = title;
+        }
+    }
+
+    private ResumeTextParser() {
+    }
+
+    public static ParsedResume parse(String text) {
+        ResumeTextParser parser = new ResumeTextParser();
+        if (text != null) {
+            int length = text.length();
+            for (int start = 0; start < length; ) {
+                int end = text.indexOf('\n', start);
+                if (end < 0) end = length;
+                parser.line(text, start, end);
+                start = end + 1;
+            }
+        }
+        return parser.build();
+    }
+
+    /** Splits free text such as the form's qualifications on a separator, dropping blanks */
+    public static List<String> splitItems(String text, char separator) {
+        List<String> items = new ArrayList<>();
+        if (text == null) return items;
+        int start = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            if (i == text.length() || text.charAt(i) == separator) {
+                String item = text.substring(start, i).trim();
+                if (!item.isEmpty()) items.add(item);
+                start = i + 1;
+            }
+        }
+        return items;
+    }
+
+    // ===== AUTOMATON =====
+
+    private void line(String text, int start, int end) {
+        int indent = 0;
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+            indent++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+        if (start == end) return;
+
+        int content = bulletContent(text, start, end);
+        boolean bullet = content > start;
+        if (!bullet) {
+            if (heading(text, start, end)) return;
+            while (content < end && text.charAt(content) == '#') content++; // "# Jane Doe" as the name
+        }
+        String value = clean(text, content, end);
+        if (value.isEmpty()) return;
+
+        switch (part) {
+            case HEADER -> header.add(value);
+            case SUMMARY -> {
+                if (!summary.isEmpty()) summary.append('\n');
+                summary.append(value);
+            }
+            case EDUCATION -> education.add(value);
+            case SKILLS -> {
+                if (bullet) skills.add(value);
+                else splitSkills(value);
+            }
+            case EXPERIENCE -> entry(experience, value, bullet, indent);
+            case PROJECTS -> entry(projects, value, bullet, indent);
+            case OTHER -> {
+                ExtraBuilder extra = extras.get(extras.size() - 1);
+                extra.lines.add(value);
+                extra.bulleted |= bullet;
+            }
+        }
+    }
+
+    private static void entry(List<EntryBuilder> entries, String value, boolean bullet, int indent) {
+        EntryBuilder current = entries.isEmpty() ? null : entries.get(entries.size() - 1);
+        if (bullet && current != null && (current.fromTitleLine || indent > 0)) {
+            current.details.add(value);
+        } else {
+            entries.add(new EntryBuilder(value, !bullet));
+        }
+    }
+
+    private void splitSkills(String value) {
+        int start = 0;
+        for (int i = 0; i <= value.length(); i++) {
+            char ch = i < value.length() ? value.charAt(i) : ',';
+            if (ch == ',' || ch == ';' || ch == '|' || ch == '•') {
+                String skill = value.substring(start, i).trim();
+                if (!skill.isEmpty()) skills.add(skill);
+                start = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Switches section if the line is a heading. Known headings may carry markdown and may be
+     * followed by content after a colon ("Skills: Java, SQL"); unknown ones only count as a
+     * markdown # heading or an all-caps line after the header, so a bold job title stays content.
+     */
+    private boolean heading(String text, int start, int end) {
+        boolean markdown = false;
+        while (start < end && text.charAt(start) == '#') {
+            start++;
+            markdown = true;
+        }
+        if (end - start > MAX_HEADING_CHARS * 2) return false;
+
+        String candidate = clean(text, start, end);
+        String rest = null;
+        int colon = candidate.indexOf(':');
+        if (colon >= 0) {
+            rest = candidate.substring(colon + 1).trim();
+            candidate = candidate.substring(0, colon).trim();
+        }
+        if (candidate.isEmpty() || candidate.length() > MAX_HEADING_CHARS) return false;
+
+        Part known = HEADINGS.get(candidate.toLowerCase(Locale.ROOT));
+        if (known != null) {
+            part = known;
+            if (rest != null && !rest.isEmpty()) line(rest, 0, rest.length());
+            return true;
+        }
+        // the first header line is the name however it is styled, and a caps contact line is not a heading
+        boolean inHeader = part == Part.HEADER;
+        if (inHeader && header.isEmpty()) return false;
+        if ((rest == null || rest.isEmpty()) && (markdown || (!inHeader && isAllCaps(candidate)))) {
+            part = Part.OTHER;
+            extras.add(new ExtraBuilder(candidate));
+            return true;
+        }
+        return false;
+    }
+
+    /** "CERTIFICATIONS" or "AWARDS & HONORS", but not a short acronym like "SQL" */
+    private static boolean isAllCaps(String s) {
+        int letters = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (Character.isUpperCase(ch)) letters++;
+            else if (ch != ' ' && ch != '&' && ch != '/') return false;
+        }
+        return letters >= 6;
+    }
+
+    /** Index just past a leading "* ", "- ", "• ", "+ " or "1. " marker, or start if there is none */
+    private static int bulletContent(String text, int start, int end) {
+        char first = text.charAt(start);
+        int after;
+        if (first == '*' || first == '-' || first == '•' || first == '+' || first == '·') {
+            after = start + 1;
+            if (first == '*' && after < end && text.charAt(after) == '*') return start; // **bold**, not a bullet
+        } else if (Character.isDigit(first)) {
+            after = start + 1;
+            while (after < end && Character.isDigit(text.charAt(after))) after++;
+            if (after >= end || (text.charAt(after) != '.' && text.charAt(after) != ')')) return start;
+            after++;
+        } else {
+            return start;
+        }
+        if (after < end && !Character.isWhitespace(text.charAt(after))) return start;
+        while (after < end && Character.isWhitespace(text.charAt(after))) after++;
+        return after;
+    }
+
+    /** The trimmed range with markdown ** and __ emphasis markers removed */
+    private static String clean(String text, int start, int end) {
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char ch = text.charAt(i);
+            if ((ch == '*' || ch == '_') && i + 1 < end && text.charAt(i + 1) == ch) {
+                i++;
+                continue;
+            }
+            sb.append(ch);
+        }
+        return sb.toString().trim();
+    }
+
+    private ParsedResume build() {
+        return new ParsedResume(header, summary.toString(), education, skills,
+                entries(experience), entries(projects),
+                extras.stream()
+                        .filter(extra -> !extra.lines.isEmpty())
+                        .map(extra -> new ResumeDocument.Section(extra.title, extra.lines, extra.bulleted))
+                        .toList());
+    }
+
+    private static List<ParsedResume.Entry> entries(List<EntryBuilder> builders) {
+        List<ParsedResume.Entry> entries = new ArrayList<>(builders.size());
+        for (EntryBuilder builder : builders) {
+            entries.add(new ParsedResume.Entry(builder.title, builder.details));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,210 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every resume draft of one session, numbered from 1. The first draft is kept in full and each
+ * later one as a line delta against the draft before it: runs of lines copied from it plus the
+ * lines that are new. Line text lives once, as UTF-8, in a single byte array, so a refinement
+ * that rewords one bullet costs that bullet's bytes and a few ints rather than a whole copy.
+ *
+ * <p>The latest draft is held as-is. Older ones are rebuilt from the nearest full line table,
+ * kept every 16 versions, so no rebuild applies more than 15 deltas.
+ */
+public class ResumeVersions {
+
+    private static final int CHECKPOINT_EVERY = 16;
+
+    // line id -> its UTF-8 bytes: arena[lineStart[id] .. lineStart[id + 1])
+    // grown by half at a time, since most sessions stop after a handful of drafts
+    private byte[] arena = new byte[1024];
+    private int[] lineStart = new int[32];
+    private int lines;
+
+    // per version: ops against the previous version; a copy is -(from + 1), length; a new line is its id
+    private final List<int[]> deltas = new ArrayList<>();
+    // full line ids of versions 1, 1 + CHECKPOINT_EVERY, ...
+    private final List<int[]> checkpoints = new ArrayList<>();
+    private long[] createdMillis = new long[8];
+
+    private String latest;
+    private int[] latestIds;
+
+    /** Adds a draft and returns its version number; a draft equal to the latest is not added again */
+    public synchronized int add(String text) {
+        if (text.equals(latest)) return deltas.size();
+        String[] textLines = text.split("\n", -1);
+        int[] ids = new int[textLines.length];
+        int[] ops;
+        if (latest == null) {
+            for (int i = 0; i < textLines.length; i++) ids[i] = addLine(textLines[i]);
+            ops = new int[0];
+        } else {
+            ops = diff(latest.split("\n", -1), textLines, ids);
+        }
+
+        int version = deltas.size();
+        deltas.add(ops);
+        if (version % CHECKPOINT_EVERY == 0) checkpoints.add(ids);
+        if (version == createdMillis.length) createdMillis = Arrays.copyOf(createdMillis, version * 2);
+        createdMillis[version] = System.currentTimeMillis();
+        latest = text;
+        latestIds = ids;
+        return version + 1;
+    }
+
+    /**
+     * Greedy line diff: each new line extends the current copy run if it continues there,
+     * otherwise starts a run at the line's first position in the old draft, otherwise is stored.
+     * Fills ids with the new draft's line ids and returns the ops.
+     */
+    private int[] diff(String[] old, String[] now, int[] ids) {
+        Map<String, Integer> firstIndex = new HashMap<>(old.length * 2);
+        for (int i = old.length - 1; i >= 0; i--) firstIndex.put(old[i], i);
+
+        int[] ops = new int[Math.max(4, now.length)];
+        int size = 0;
+        int runStart = -1;
+        int runLength = 0;
+        for (int j = 0; j < now.length; j++) {
+            String line = now[j];
+            int next = runStart + runLength;
+            if (runLength > 0 && next < old.length && old[next].equals(line)) {
+                runLength++;
+                ids[j] = latestIds[next];
+                continue;
+            }
+            if (runLength > 0) {
+                ops = grow(ops, size + 2);
+                ops[size++] = -(runStart + 1);
+                ops[size++] = runLength;
+                runLength = 0;
+            }
+            Integer from = firstIndex.get(line);
+            if (from != null) {
+                runStart = from;
+                runLength = 1;
+                ids[j] = latestIds[from];
+            } else {
+                ops = grow(ops, size + 1);
+                ids[j] = addLine(line);
+                ops[size++] = ids[j];
+            }
+        }
+        if (runLength > 0) {
+            ops = grow(ops, size + 2);
+            ops[size++] = -(runStart + 1);
+            ops[size++] = runLength;
+        }
+        return Arrays.copyOf(ops, size);
+    }
+
+    private static int[] grow(int[] array, int needed) {
+        return needed <= array.length ? array : Arrays.copyOf(array, Math.max(needed, array.length * 2));
+    }
+
+    private int addLine(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        int start = lineStart[lines];
+        if (start + bytes.length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(start + bytes.length, arena.length + arena.length / 2));
+        }
+        System.arraycopy(bytes, 0, arena, start, bytes.length);
+        if (lines + 2 > lineStart.length) lineStart = Arrays.copyOf(lineStart, lineStart.length + lineStart.length / 2);
+        lineStart[lines + 1] = start + bytes.length;
+        return lines++;
+    }
+
+    /** Number of versions; also the latest version's number */
+    public synchronized int size() {
+        return deltas.size();
+    }
+
+    /** The latest draft, or null before the first */
+    public synchronized String latest() {
+        return latest;
+    }
+
+    /** The given version's text, rebuilt from its checkpoint */
+    public synchronized String get(int version) {
+        if (version < 1 || version > deltas.size()) {
+            throw new IllegalArgumentException("No version " + version + "; there are " + deltas.size());
+        }
+        if (version == deltas.size()) return latest;
+        int index = version - 1;
+        int checkpoint = index / CHECKPOINT_EVERY;
+        int[] ids = checkpoints.get(checkpoint);
+        for (int v = checkpoint * CHECKPOINT_EVERY + 1; v <= index; v++) {
+            ids = apply(ids, deltas.get(v));
+        }
+        return render(ids);
+    }
+
+    private static int[] apply(int[] previous, int[] ops) {
+        int length = 0;
+        for (int i = 0; i < ops.length; i++) {
+            if (ops[i] < 0) length += ops[++i];
+            else length++;
+        }
+        int[] ids = new int[length];
+        int at = 0;
+        for (int i = 0; i < ops.length; i++) {
+            if (ops[i] < 0) {
+                int from = -ops[i] - 1;
+                int count = ops[++i];
+                System.arraycopy(previous, from, ids, at, count);
+                at += count;
+            } else {
+                ids[at++] = ops[i];
+            }
+        }
+        return ids;
+    }
+
+    private String render(int[] ids) {
+        int length = Math.max(0, ids.length - 1); // newlines
+        for (int id : ids) length += lineStart[id + 1] - lineStart[id];
+        byte[] out = new byte[length];
+        int at = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) out[at++] = '\n';
+            int start = lineStart[ids[i]];
+            int count = lineStart[ids[i] + 1] - start;
+            System.arraycopy(arena, start, out, at, count);
+            at += count;
+        }
+        return new String(out, StandardCharsets.UTF_8);
+    }
+
+    /** When the version was added, in epoch millis */
+    public synchronized long createdMillis(int version) {
+        if (version < 1 || version > deltas.size()) {
+            throw new IllegalArgumentException("No version " + version + "; there are " + deltas.size());
+        }
+        return createdMillis[version - 1];
+    }
+
+    /** Every version's text, oldest first */
+    public synchronized List<String> all() {
+        List<String> all = new ArrayList<>(deltas.size());
+        for (int v = 1; v <= deltas.size(); v++) all.add(get(v));
+        return all;
+    }
+
+    /**
+     * Approximate heap held by the store, counting array headers as 16 bytes; the latest text
+     * is left out, since the session holds that string anyway.
+     */
+    public synchronized long estimatedBytes() {
+        long bytes = 16L + arena.length + 16 + 4L * lineStart.length + 16 + 8L * createdMillis.length;
+        for (int[] ops : deltas) bytes += 16 + 4L * ops.length + 4; // + list slot
+        for (int[] ids : checkpoints) bytes += 16 + 4L * ids.length + 4;
+        if (latestIds != null && (deltas.size() - 1) % CHECKPOINT_EVERY != 0) bytes += 16 + 4L * latestIds.length;
+        return bytes;
+    }
+}
@@ -0,0 +1,178 @@
+package org.example;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One user's conversation with Gemini: mode, system instruction, history and latest resume.
+ * Sessions are created and driven by {@link GeminiServer}, which holds {@link #lock} for the
+ * whole of each turn, so callers never need to synchronize on a session themselves.
+ */
+public class Session {
+
+    private final String id;
+    final ReentrantLock lock = new ReentrantLock(true);
+
+    private GeminiServer.Mode mode;
+    private String systemInstruction;
+    // the system instruction pre-encoded as the first "user" turn of every request
+    private byte[] systemContent;
+    final ConversationHistory history = ConversationHistory.withDefaults();
+
+    private volatile String latestResumeText = "";
+    // every draft latestResumeText has held, delta-compressed
+    final ResumeVersions versions = new ResumeVersions();
+    // set by structured-output turns only
+    private volatile ParsedResume latestResume;
+    // finishReason and token usage of the most recent API reply
+    private volatile GeminiReply lastReply;
+    private volatile long lastTimeToFirstTokenNanos = -1;
+    private volatile long lastActiveMillis = System.currentTimeMillis();
+
+    // set once journaling is on; mode, instruction and latest resume changes are recorded there
+    volatile SessionJournal journal;
+    // records journaled for this session so far; guarded by this session's monitor
+    long journalSeq;
+
+    Session(GeminiServer.Mode mode) {
+        this(UUID.randomUUID().toString(), mode);
+    }
+
+    Session(String id, GeminiServer.Mode mode) {
+        this.id = id;
+        setMode(mode);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public GeminiServer.Mode getMode() {
+        lock.lock();
+        try {
+            return mode;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Switches mode and installs that mode's system instruction */
+    public void setMode(GeminiServer.Mode mode) {
+        lock.lock();
+        try {
+            this.mode = mode;
+            installInstruction(GeminiServer.instructionFor(mode));
+            SessionJournal j = journal;
+            if (j != null) j.instruction(this);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void setSystemInstruction(String instruction) {
+        lock.lock();
+        try {
+            installInstruction(instruction);
+            SessionJournal j = journal;
+            if (j != null) j.instruction(this);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void installInstruction(String instruction) {
+        systemInstruction = instruction;
+        systemContent = instruction != null && !instruction.isEmpty()
+                ? RequestBodyEncoder.encodeContent("user", instruction)
+                : null;
+    }
+
+    String getSystemInstruction() {
+        return systemInstruction;
+    }
+
+    byte[] getSystemContent() {
+        return systemContent;
+    }
+
+    /** Snapshot of the turns the next request would carry */
+    public List<ChatMessage> messages() {
+        lock.lock();
+        try {
+            return history.messages();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getLatestResumeText() {
+        return latestResumeText;
+    }
+
+    void setLatestResumeText(String text) {
+        synchronized (this) {
+            latestResumeText = text;
+            if (text != null && !text.isEmpty()) versions.add(text);
+            SessionJournal j = journal;
+            if (j != null) j.latest(this, text);
+        }
+    }
+
+    /** Every resume draft so far; the latest is also getLatestResumeText() */
+    public ResumeVersions getVersions() {
+        return versions;
+    }
+
+    /** The last resume decoded from a structured-output turn, or null */
+    public ParsedResume getLatestResume() {
+        return latestResume;
+    }
+
+    void setLatestResume(ParsedResume resume) {
+        latestResume = resume;
+        setLatestResumeText(resume.toText());
+    }
+
+    /** Takes over a recovered session's state; used for the default session, whose object already exists */
+    void restoreFrom(Session recovered) {
+        lock.lock();
+        try {
+            synchronized (this) {
+                mode = recovered.mode;
+                installInstruction(recovered.systemInstruction);
+                history.restore(recovered.history.state());
+                latestResumeText = recovered.latestResumeText;
+                for (String draft : recovered.versions.all()) versions.add(draft);
+                journalSeq = recovered.journalSeq;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public GeminiReply getLastReply() {
+        return lastReply;
+    }
+
+    void setLastReply(GeminiReply reply) {
+        lastReply = reply;
+    }
+
+    /** Time from sending the last streaming request to its first text delta, or -1 */
+    public long getLastTimeToFirstTokenNanos() {
+        return lastTimeToFirstTokenNanos;
+    }
+
+    void setLastTimeToFirstTokenNanos(long nanos) {
+        lastTimeToFirstTokenNanos = nanos;
+    }
+
+    long getLastActiveMillis() {
+        return lastActiveMillis;
+    }
+
+    void touch() {
+        lastActiveMillis = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,677 @@
+package org.example;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead journal of every session change, so sessions in progress survive a crash or a
+ * restart. Sessions record their changes here as they happen; one writer thread appends them
+ * to the current segment file and forces it to disk once per batch (group commit), so a turn
+ * only pays for queueing its record. When a segment fills up, a snapshot of every live
+ * session is written and the segments it covers are deleted.
+ *
+ * <p>Recovery loads the newest snapshot and replays the segments after it through memory
+ * maps. A torn record at the end of the log (a crash mid-write) is cut off; records the
+ * snapshot already reflects are recognised by their per-session sequence number and skipped.
+ * A batch that fails to write is cut back off the log and stops the journal, and sync()
+ * reports the failure instead of claiming the records are safe.
+ *
+ * <p>Segment: 8-byte magic, then records of 4-byte payload length, 4-byte CRC32C of the
+ * payload, payload. Payload: type, session id, sequence number, then the type's fields.
+ * Strings are a 4-byte UTF-8 length (-1 for null) and the bytes.
+ */
+public class SessionJournal implements AutoCloseable {
+
+    private static final byte OPEN = 1;
+    private static final byte INSTRUCTION = 2;
+    private static final byte TURN = 3;
+    private static final byte LATEST = 4;
+    private static final byte CLOSE = 5;
+    private static final byte STOP = 0; // never written; ends the writer
+
+    private static final long SEGMENT_MAGIC = 0x474A4E4C30303031L;  // "GJNL0001"
+    private static final long SNAPSHOT_MAGIC = 0x47534E5030303031L; // "GSNP0001"
+    private static final int HEADER_BYTES = Long.BYTES;
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int MAX_BATCH = 4096;
+
+    private static final LatencyRecorder COMMIT_TIME = Metrics.shared().latency(Metrics.JOURNAL_COMMIT);
+    private static final LongAdder RECORDS = Metrics.shared().counter(Metrics.JOURNAL_RECORDS);
+
+    /** A change waiting for the writer, numbered in queue order */
+    private record Entry(long ticket, byte type, String sessionId, long seq,
+                         GeminiServer.Mode mode, String first, String second) { }
+
+    /** A point in the log: segment number and byte offset within it */
+    private record Position(long segment, long offset) { }
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final boolean fsync;
+    private final List<Session> recovered;
+
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Object commitLock = new Object();
+    private long enqueued;  // guarded by commitLock
+    private long committed; // guarded by commitLock
+    private final Thread writer;
+    private volatile boolean closed;
+    // the write that failed; once set, the log stops growing, since records after a gap would replay wrongly
+    private volatile Exception failure;
+    private volatile Supplier<Collection<Session>> liveSessions = List::of;
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+
+    // writer thread only
+    private FileChannel channel;
+    private long segment;
+    private long segmentPosition;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final CRC32C crc = new CRC32C();
+    // last position known to be written, for snapshots
+    private volatile Position written;
+
+    private SessionJournal(Path dir, long segmentBytes, boolean fsync) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        Files.createDirectories(dir);
+
+        long start = System.nanoTime();
+        Recovery recovery = new Recovery();
+        recovery.run();
+        this.recovered = List.copyOf(recovery.sessions.values());
+        System.out.println("Recovered " + recovered.size() + " sessions from the journal ("
+                + recovery.records + " records replayed) in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        openForAppend(recovery.end, recovery.next);
+        writer = new Thread(this::runWriter, "session-journal");
+        writer.setDaemon(true);
+        writer.start();
+        Metrics.shared().gauge("journal.queued", queue::size);
+    }
+
+    /** Recovers whatever the directory holds and starts appending after it */
+    public static SessionJournal open(Path dir) throws IOException {
+        return open(dir, Long.getLong("gemini.journal.segmentMB", 64) << 20,
+                Boolean.parseBoolean(System.getProperty("gemini.journal.fsync", "true")));
+    }
+
+    /**
+     * @param segmentBytes size at which a segment is closed and a snapshot taken
+     * @param fsync whether each batch is forced to disk before it counts as committed
+     */
+    public static SessionJournal open(Path dir, long segmentBytes, boolean fsync) throws IOException {
+        return new SessionJournal(dir, segmentBytes, fsync);
+    }
+
+    /** The sessions as they stood when the journal was opened */
+    public List<Session> recovered() {
+        return recovered;
+    }
+
+    /** Where snapshots find the sessions to save; they must all be attached to this journal */
+    public void setLiveSessions(Supplier<Collection<Session>> liveSessions) {
+        this.liveSessions = Objects.requireNonNull(liveSessions, "liveSessions");
+    }
+
+    // ===== RECORDING =====
+
+    /** Starts recording a new session */
+    public void opened(Session session) {
+        synchronized (session) {
+            session.journal = this;
+            append(session, OPEN, session.getMode(), session.getSystemInstruction(), null);
+        }
+    }
+
+    /** Resumes recording a session that came out of recovered() */
+    public void attach(Session session) {
+        session.journal = this;
+    }
+
+    void instruction(Session session) {
+        synchronized (session) {
+            append(session, INSTRUCTION, session.getMode(), session.getSystemInstruction(), null);
+        }
+    }
+
+    /** A completed turn; call with the session lock held, right after the history took it */
+    void turn(Session session, String userMessage, String reply) {
+        synchronized (session) {
+            append(session, TURN, null, userMessage, reply);
+        }
+    }
+
+    void latest(Session session, String text) {
+        synchronized (session) {
+            append(session, LATEST, null, text, null);
+        }
+    }
+
+    void closed(Session session) {
+        synchronized (session) {
+            append(session, CLOSE, null, null, null);
+            session.journal = null;
+        }
+    }
+
+    /** Caller holds the session's monitor, so sequence numbers follow the order of its changes */
+    private void append(Session session, byte type, GeminiServer.Mode mode, String first, String second) {
+        if (closed || failure != null) return;
+        long seq = ++session.journalSeq;
+        synchronized (commitLock) {
+            queue.add(new Entry(++enqueued, type, session.getId(), seq, mode, first, second));
+        }
+    }
+
+    /**
+     * Waits until everything recorded so far is on disk.
+     * @throws IOException if the journal failed before getting there; nothing is recorded after that
+     */
+    public void sync() throws IOException, InterruptedException {
+        synchronized (commitLock) {
+            long target = enqueued;
+            while (committed < target && writer.isAlive() && failure == null) {
+                commitLock.wait(100);
+            }
+            if (committed < target) {
+                throw failure != null ? new IOException("Session journal failed", failure)
+                        : new IOException("Session journal is closed");
+            }
+        }
+    }
+
+    // ===== WRITER =====
+
+    private void runWriter() {
+        List<Entry> batch = new ArrayList<>();
+        boolean stop = false;
+        while (!stop) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (batch.get(batch.size() - 1).type() == STOP) {
+                batch.remove(batch.size() - 1);
+                stop = true;
+            }
+            if (batch.isEmpty() || failure != null) {
+                batch.clear();
+                continue;
+            }
+            long startNanos = System.nanoTime();
+            try {
+                write(batch);
+                COMMIT_TIME.recordSince(startNanos);
+                RECORDS.add(batch.size());
+                synchronized (commitLock) {
+                    committed = batch.get(batch.size() - 1).ticket();
+                    commitLock.notifyAll();
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Session journal write failed, journaling stopped; sessions from here on"
+                        + " will not survive a restart:");
+                e.printStackTrace();
+                synchronized (commitLock) {
+                    failure = e;
+                    commitLock.notifyAll();
+                }
+            }
+            batch.clear();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Could not close the session journal: " + e.getMessage());
+        }
+    }
+
+    private void write(List<Entry> batch) throws IOException {
+        if (segmentPosition >= segmentBytes) {
+            startSegment(segment + 1);
+            snapshotInBackground();
+        }
+        buffer.clear();
+        for (Entry entry : batch) {
+            encode(entry);
+        }
+        buffer.flip();
+        long start = segmentPosition;
+        try {
+            while (buffer.hasRemaining()) {
+                segmentPosition += channel.write(buffer);
+            }
+            if (fsync) channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            // cut off whatever part of the batch got out, so the log still ends on a whole record
+            try {
+                channel.truncate(start);
+                channel.position(start);
+                segmentPosition = start;
+            } catch (IOException | RuntimeException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        written = new Position(segment, segmentPosition);
+    }
+
+    private void encode(Entry entry) {
+        byte[] id = utf8(entry.sessionId());
+        byte[] mode = entry.mode() == null ? null : utf8(entry.mode().name());
+        byte[] first = utf8(entry.first());
+        byte[] second = utf8(entry.second());
+        int payload = 1 + stringBytes(id) + Long.BYTES + stringBytes(mode) + stringBytes(first) + stringBytes(second);
+        ensureCapacity(RECORD_HEADER_BYTES + payload);
+
+        int start = buffer.position();
+        buffer.putInt(payload).putInt(0); // CRC filled in below
+        buffer.put(entry.type());
+        putString(buffer, id);
+        buffer.putLong(entry.seq());
+        putString(buffer, mode);
+        putString(buffer, first);
+        putString(buffer, second);
+
+        crc.reset();
+        crc.update(buffer.slice(start + RECORD_HEADER_BYTES, payload));
+        buffer.putInt(start + Integer.BYTES, (int) crc.getValue());
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() >= bytes) return;
+        ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        bigger.put(buffer);
+        buffer = bigger;
+    }
+
+    private void openForAppend(Position end, long next) throws IOException {
+        if (end == null) {
+            startSegment(next);
+            return;
+        }
+        segment = end.segment();
+        channel = FileChannel.open(segmentPath(segment), StandardOpenOption.WRITE);
+        channel.truncate(end.offset()); // drops a torn record left by a crash
+        channel.position(end.offset());
+        segmentPosition = end.offset();
+        written = end;
+    }
+
+    private void startSegment(long number) throws IOException {
+        if (channel != null) channel.close();
+        segment = number;
+        channel = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        channel.write(ByteBuffer.allocate(HEADER_BYTES).putLong(0, SEGMENT_MAGIC));
+        if (fsync) channel.force(true);
+        segmentPosition = HEADER_BYTES;
+        written = new Position(segment, segmentPosition);
+    }
+
+    // ===== SNAPSHOTS =====
+
+    private void snapshotInBackground() {
+        if (failure != null || !snapshotting.compareAndSet(false, true)) return;
+        Thread.ofVirtual().name("session-journal-snapshot").start(() -> {
+            try {
+                snapshot();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Session journal snapshot failed, the log keeps growing until the next one:");
+                e.printStackTrace();
+            } finally {
+                snapshotting.set(false);
+            }
+        });
+    }
+
+    /**
+     * Saves every live session and deletes the segments and snapshots it makes redundant.
+     * Sessions are copied one at a time under their lock, so this waits for turns in progress
+     * but never stops the others; records written meanwhile are replayed on top.
+     */
+    public void snapshot() throws IOException {
+        Position from = written;
+        List<SnapshotEntry> entries = new ArrayList<>();
+        for (Session session : liveSessions.get()) {
+            session.lock.lock();
+            try {
+                synchronized (session) {
+                    if (session.journal != this) continue; // closed meanwhile
+                    entries.add(new SnapshotEntry(session.getId(), session.journalSeq, session.getMode(),
+                            session.getSystemInstruction(), session.getLatestResumeText(), session.versions.all(),
+                            session.history.state()));
+                }
+            } finally {
+                session.lock.unlock();
+            }
+        }
+
+        Path target = dir.resolve(String.format("snapshot-%016d-%016d.snap", from.segment(), from.offset()));
+        AtomicFiles.write(target, out -> {
+            DataOutputStream data = new DataOutputStream(out);
+            CRC32C sum = new CRC32C();
+            data.writeLong(SNAPSHOT_MAGIC);
+            data.writeLong(from.segment());
+            data.writeLong(from.offset());
+            data.writeInt(entries.size());
+            for (SnapshotEntry entry : entries) {
+                byte[] bytes = entry.encode();
+                sum.update(bytes);
+                data.writeInt(bytes.length);
+                data.write(bytes);
+            }
+            data.writeInt((int) sum.getValue());
+            data.flush();
+        });
+
+        // everything before the snapshot's segment is now redundant, as are older snapshots
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.startsWith("segment-") && segmentNumber(file) < from.segment()
+                        || name.startsWith("snapshot-") && name.endsWith(".snap") && !file.equals(target)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /** One session as saved in a snapshot */
+    private record SnapshotEntry(String id, long seq, GeminiServer.Mode mode, String instruction,
+                                 String latest, List<String> versions, ConversationHistory.State history) {
+
+        byte[] encode() {
+            ByteBuffer out = ByteBuffer.allocate(estimateBytes());
+            putString(out, utf8(id));
+            out.putLong(seq);
+            putString(out, utf8(mode.name()));
+            putString(out, utf8(instruction));
+            putString(out, utf8(latest));
+            out.putInt(versions.size());
+            for (String draft : versions) putString(out, utf8(draft));
+            out.put((byte) (history.pinFirstReply() ? 1 : 0));
+            putMessages(out, history.pinned());
+            out.putInt(history.summaryNotes().size());
+            for (String note : history.summaryNotes()) putString(out, utf8(note));
+            putMessages(out, history.recent());
+            return java.util.Arrays.copyOf(out.array(), out.position());
+        }
+
+        /** Upper bound: a UTF-8 char takes at most three bytes */
+        private int estimateBytes() {
+            long chars = id.length() + mode.name().length() + length(instruction) + length(latest);
+            for (String v : versions) chars += v.length();
+            int strings = 8 + versions.size(); // four strings and four counts
+            for (ChatMessage m : history.pinned()) chars += m.role().length() + m.text().length();
+            for (String n : history.summaryNotes()) chars += n.length();
+            for (ChatMessage m : history.recent()) chars += m.role().length() + m.text().length();
+            strings += 2 * (history.pinned().size() + history.recent().size()) + history.summaryNotes().size();
+            return Math.toIntExact(chars * 3 + strings * Integer.BYTES + Long.BYTES + 1);
+        }
+
+        private static int length(String s) {
+            return s == null ? 0 : s.length();
+        }
+
+        private static void putMessages(ByteBuffer out, List<ChatMessage> messages) {
+            out.putInt(messages.size());
+            for (ChatMessage m : messages) {
+                putString(out, utf8(m.role()));
+                putString(out, utf8(m.text()));
+            }
+        }
+
+        static Session decode(ByteBuffer in) {
+            String id = getString(in);
+            long seq = in.getLong();
+            GeminiServer.Mode mode = GeminiServer.Mode.valueOf(getString(in));
+            String instruction = getString(in);
+            String latest = getString(in);
+            int drafts = in.getInt();
+            List<String> versions = new ArrayList<>(drafts);
+            for (int i = 0; i < drafts; i++) versions.add(getString(in));
+            boolean pinFirstReply = in.get() == 1;
+            List<ChatMessage> pinned = getMessages(in);
+            int notes = in.getInt();
+            List<String> summaryNotes = new ArrayList<>(notes);
+            for (int i = 0; i < notes; i++) summaryNotes.add(getString(in));
+            List<ChatMessage> recent = getMessages(in);
+
+            Session session = new Session(id, mode);
+            if (!Objects.equals(instruction, session.getSystemInstruction())) session.setSystemInstruction(instruction);
+            session.history.restore(new ConversationHistory.State(pinFirstReply, pinned, summaryNotes, recent));
+            for (String draft : versions) session.versions.add(draft);
+            session.setLatestResumeText(latest);
+            session.journalSeq = seq;
+            return session;
+        }
+
+        private static List<ChatMessage> getMessages(ByteBuffer in) {
+            int count = in.getInt();
+            List<ChatMessage> messages = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String role = getString(in);
+                messages.add(ChatMessage.of(role, getString(in)));
+            }
+            return messages;
+        }
+    }
+
+    // ===== RECOVERY =====
+
+    /** Newest snapshot plus the log after it, read through memory maps */
+    private final class Recovery {
+        final Map<String, Session> sessions = new LinkedHashMap<>();
+        long records;
+        Position end; // where appending resumes; null to start a new segment
+        long next;    // the number that new segment gets
+
+        void run() throws IOException {
+            Position from = loadSnapshot();
+            List<Path> segments = listSegments();
+            for (int i = 0; i < segments.size(); i++) {
+                long number = segmentNumber(segments.get(i));
+                if (from != null && number < from.segment()) continue;
+                long offset = from != null && number == from.segment() ? from.offset() : HEADER_BYTES;
+                end = replay(segments.get(i), number, offset, i == segments.size() - 1);
+            }
+            next = Math.max(from != null ? from.segment() + 1 : 1,
+                    segments.isEmpty() ? 1 : segmentNumber(segments.get(segments.size() - 1)) + 1);
+        }
+
+        /** Applies the segment's records from offset on; returns the end of the last good one */
+        private Position replay(Path file, long number, long offset, boolean last) throws IOException {
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = in.size();
+                if (size < HEADER_BYTES) {
+                    // crashed while creating it, before anything was recorded there
+                    in.close();
+                    Files.delete(file);
+                    return null;
+                }
+                MappedByteBuffer map = in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                if (map.getLong(0) != SEGMENT_MAGIC) throw new IOException(file + " is not a journal segment");
+                CRC32C sum = new CRC32C();
+                int position = (int) Math.max(offset, HEADER_BYTES);
+                while (position + RECORD_HEADER_BYTES <= size) {
+                    int length = map.getInt(position);
+                    int expected = map.getInt(position + Integer.BYTES);
+                    if (length <= 0 || position + RECORD_HEADER_BYTES + (long) length > size) break;
+                    ByteBuffer payload = map.slice(position + RECORD_HEADER_BYTES, length);
+                    sum.reset();
+                    sum.update(payload.duplicate());
+                    if ((int) sum.getValue() != expected) break;
+                    try {
+                        apply(payload);
+                    } catch (BufferUnderflowException | IllegalArgumentException e) {
+                        break;
+                    }
+                    records++;
+                    position += RECORD_HEADER_BYTES + length;
+                }
+                if (position < size) {
+                    System.err.println("Session journal: " + (size - position) + " unreadable bytes at the end of "
+                            + file.getFileName() + (last ? ", cut off" : ", skipped"));
+                }
+                return new Position(number, position);
+            }
+        }
+
+        private void apply(ByteBuffer in) {
+            byte type = in.get();
+            String id = getString(in);
+            long seq = in.getLong();
+            String mode = getString(in);
+            String first = getString(in);
+            String second = getString(in);
+
+            Session session = sessions.get(id);
+            if (type == OPEN) {
+                if (session == null) {
+                    session = new Session(id, GeminiServer.Mode.valueOf(mode));
+                    if (!Objects.equals(first, session.getSystemInstruction())) session.setSystemInstruction(first);
+                    session.journalSeq = seq;
+                    sessions.put(id, session);
+                }
+                return;
+            }
+            if (session == null || seq <= session.journalSeq) return; // closed, or already in the snapshot
+            session.journalSeq = seq;
+            switch (type) {
+                case INSTRUCTION -> {
+                    session.setMode(GeminiServer.Mode.valueOf(mode));
+                    if (!Objects.equals(first, session.getSystemInstruction())) session.setSystemInstruction(first);
+                }
+                case TURN -> {
+                    session.history.addUser(first);
+                    session.history.addModel(second, true);
+                }
+                case LATEST -> session.setLatestResumeText(first);
+                case CLOSE -> sessions.remove(id);
+                default -> throw new IllegalArgumentException("Unknown journal record type " + type);
+            }
+        }
+
+        /** Loads the newest snapshot that checks out; returns the log position it covers, or null */
+        private Position loadSnapshot() throws IOException {
+            List<Path> snapshots = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "snapshot-*.snap")) {
+                files.forEach(snapshots::add);
+            }
+            snapshots.sort(null);
+            for (int i = snapshots.size() - 1; i >= 0; i--) {
+                Position from = readSnapshot(snapshots.get(i));
+                if (from != null) return from;
+                sessions.clear();
+            }
+            return null;
+        }
+
+        private Position readSnapshot(Path file) throws IOException {
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer map = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+                if (map.getLong() != SNAPSHOT_MAGIC) throw new IOException("bad magic");
+                Position from = new Position(map.getLong(), map.getLong());
+                int count = map.getInt();
+                CRC32C sum = new CRC32C();
+                for (int i = 0; i < count; i++) {
+                    int length = map.getInt();
+                    ByteBuffer bytes = map.slice(map.position(), length);
+                    sum.update(bytes.duplicate());
+                    Session session = SnapshotEntry.decode(bytes);
+                    sessions.put(session.getId(), session);
+                    map.position(map.position() + length);
+                }
+                if (map.getInt() != (int) sum.getValue()) throw new IOException("checksum mismatch");
+                return from;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring snapshot " + file.getFileName() + ": " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    // ===== FILES =====
+
+    private Path segmentPath(long number) {
+        return dir.resolve(String.format("segment-%016d.log", number));
+    }
+
+    private static long segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("segment-".length(), name.length() - ".log".length()));
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "segment-*.log")) {
+            files.forEach(segments::add);
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private static byte[] utf8(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringBytes(byte[] bytes) {
+        return Integer.BYTES + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putString(ByteBuffer out, byte[] bytes) {
+        if (bytes == null) {
+            out.putInt(-1);
+            return;
+        }
+        out.putInt(bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        if (length > in.remaining()) throw new IllegalArgumentException("string runs past the record");
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Writes out everything queued and stops the writer; later changes are not recorded */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        synchronized (commitLock) {
+            queue.add(new Entry(++enqueued, STOP, "", 0, null, null, null));
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Incremental parser for the server-sent events returned by streamGenerateContent?alt=sse.
+ * Each event carries one small GenerateContentResponse JSON chunk; text deltas are handed to
+ * the listener as soon as their event is complete.
+ */
+public class SseChunkParser {
+
+    private final Consumer<String> onText;
+    private final StringBuilder data = new StringBuilder();
+    private final StringBuilder fullText = new StringBuilder();
+    private String error;
+    private GeminiReply lastChunk;
+
+    public SseChunkParser(Consumer<String> onText) {
+        this.onText = onText;
+    }
+
+    /** Reads events until the stream ends and returns the concatenated text */
+    public String parse(InputStream in) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                feedLine(line);
+            }
+        }
+        dispatch(); // stream may end without a trailing blank line
+        return fullText.toString();
+    }
+
+    /** Feeds one line of the event stream; a blank line ends the current event */
+    public void feedLine(String line) {
+        if (line.isEmpty()) {
+            dispatch();
+        } else if (line.startsWith("data:")) {
+            if (data.length() > 0) data.append('\n');
+            data.append(line, line.startsWith("data: ") ? 6 : 5, line.length());
+        }
+        // "event:", "id:" and ":" comment lines carry nothing we need
+    }
+
+    public String getText() {
+        return fullText.toString();
+    }
+
+    /** The final chunk carries finishReason and the usage totals for the whole reply */
+    public GeminiReply getLastChunk() {
+        return lastChunk;
+    }
+
+    /** API error message from an error event, or null */
+    public String getError() {
+        return error;
+    }
+
+    private void dispatch() {
+        if (data.length() == 0) return;
+        String payload = data.toString();
+        data.setLength(0);
+        if (payload.equals("[DONE]")) return;
+
+        GeminiReply chunk;
+        try {
+            chunk = ResponseParser.parseChunk(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed stream chunk", e);
+        }
+        lastChunk = chunk;
+        if (chunk.ok()) {
+            fullText.append(chunk.text());
+            if (!chunk.text().isEmpty()) onText.accept(chunk.text());
+        } else if (chunk.error() != null) {
+            error = chunk.error();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.example;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * The non-UI part of startup: read the API key, build the engine, open the connection to
+ * the API host and compile what the first export needs. Main runs it in the background
+ * while the splash screen animates, so none of it delays the first frame.
+ */
+final class StartupTasks {
+
+    static final String API_KEY_PATH = "/org/example/API_KEY.txt";
+
+    private StartupTasks() {}
+
+    static CompletableFuture<GeminiServer> start(Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                GeminiServer engine = createEngine();
+                warmUpExport();
+                long millis = uptimeMillis();
+                Metrics.shared().gauge("startup.engineReadyMillis", () -> millis);
+                return engine;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    static GeminiServer createEngine() throws Exception {
+        return createEngine(new GeminiServer(API_KEY_PATH, GeminiServer.Mode.RESUME));
+    }
+
+    static GeminiServer createEngine(GeminiServer engine) {
+        engine.setStreaming(true);
+        engine.warmUp(); // not awaited; the handshake finishes while the user fills in the form
+        return engine;
+    }
+
+    /** Loads the template, parser and exporter classes the first download would otherwise pay for */
+    static void warmUpExport() {
+        DocxTemplate.resume();
+        ResumeTextParser.parse("Jane Doe\n\nSummary\nWarm-up\n\nSkills\n* Java");
+        ResumeExporter.shared();
+    }
+
+    /** Milliseconds since the JVM started */
+    static long uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
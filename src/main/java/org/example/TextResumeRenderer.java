@@ -0,0 +1,71 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/** Plain-text and Markdown versions of a ResumeDocument */
+public final class TextResumeRenderer {
+
+    private TextResumeRenderer() {}
+
+    public static void writeText(ResumeDocument resume, OutputStream out) throws IOException {
+        Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        w.write(resume.name());
+        w.write('\n');
+        w.write(resume.contact());
+        w.write('\n');
+        for (ResumeDocument.Section section : resume.sections()) {
+            w.write('\n');
+            w.write(section.title().toUpperCase());
+            w.write('\n');
+            for (String line : section.lines()) {
+                writeLines(w, line, section.bulleted() ? "  • " : "", section.bulleted() ? "    " : "");
+            }
+        }
+        w.write('\n');
+        w.write(resume.footer());
+        w.write('\n');
+        w.flush();
+    }
+
+    public static void writeMarkdown(ResumeDocument resume, OutputStream out) throws IOException {
+        Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        w.write("# ");
+        w.write(resume.name());
+        w.write("\n\n");
+        w.write(resume.contact());
+        w.write('\n');
+        for (ResumeDocument.Section section : resume.sections()) {
+            w.write("\n## ");
+            w.write(section.title());
+            w.write("\n\n");
+            boolean first = true;
+            for (String line : section.lines()) {
+                if (section.bulleted()) {
+                    writeLines(w, line, "- ", "  ");
+                } else {
+                    if (!first) w.write('\n'); // blank line between paragraphs
+                    writeLines(w, line, "", "");
+                }
+                first = false;
+            }
+        }
+        w.write("\n---\n\n_");
+        w.write(resume.footer());
+        w.write("_\n");
+        w.flush();
+    }
+
+    /** First line gets the prefix, continuation lines the indent */
+    private static void writeLines(Writer w, String text, String prefix, String indent) throws IOException {
+        String[] lines = text.split("\n", -1);
+        for (int i = 0; i < lines.length; i++) {
+            w.write(i == 0 ? prefix : indent);
+            w.write(lines[i]);
+            w.write('\n');
+        }
+    }
+}
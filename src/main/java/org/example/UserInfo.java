@@ -55,4 +55,15 @@ public class UserInfo {
     public void setQuals(String quals) {
         this.quals = quals;
     }
+
+    /** The prompt that asks Gemini for the first draft of this user's resume */
+    public String toResumePrompt() {
+        return "Build a professional resume using the following info:\n"
+                + "Name: " + name + "\n"
+                + "Email: " + email + "\n"
+                + "Phone: " + phone + "\n"
+                + "City/State: " + cityState + "\n"
+                + "About Me: " + about + "\n"
+                + "Qualifications: " + quals;
+    }
 }
@@ -0,0 +1,84 @@
+package org.example;
+
+import org.apache.poi.xwpf.usermodel.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Builds the document run by run through POI's XWPF model. Used when the template is
+ * missing, and as the baseline the template engine is benchmarked against.
+ */
+public class XwpfDocxRenderer implements DocxRenderer {
+
+    public static final XwpfDocxRenderer INSTANCE = new XwpfDocxRenderer();
+
+    @Override
+    public void write(ResumeDocument resume, OutputStream out) throws IOException {
+        try (XWPFDocument doc = new XWPFDocument()) {
+
+            // ===== HEADER =====
+            XWPFParagraph header = doc.createParagraph();
+            header.setAlignment(ParagraphAlignment.CENTER);
+            XWPFRun nameRun = header.createRun();
+            nameRun.setBold(true);
+            nameRun.setFontSize(20);
+            nameRun.setText(resume.name());
+            nameRun.addBreak();
+
+            XWPFRun contactRun = header.createRun();
+            contactRun.setFontSize(11);
+            contactRun.setText(resume.contact());
+            contactRun.addBreak();
+            contactRun.addBreak();
+
+            // ===== SECTIONS =====
+            for (ResumeDocument.Section section : resume.sections()) {
+                XWPFParagraph title = doc.createParagraph();
+                XWPFRun titleRun = title.createRun();
+                titleRun.setBold(true);
+                titleRun.setFontSize(14);
+                titleRun.setText(section.title());
+                titleRun.addBreak();
+
+                if (section.bulleted()) {
+                    for (String line : section.lines()) {
+                        XWPFParagraph bullet = doc.createParagraph();
+                        bullet.setIndentationLeft(400);
+                        XWPFRun run = bullet.createRun();
+                        run.setFontSize(12);
+                        setLines(run, "• " + line);
+                    }
+                } else {
+                    XWPFParagraph body = doc.createParagraph();
+                    XWPFRun run = body.createRun();
+                    run.setFontSize(12);
+                    for (String line : section.lines()) {
+                        setLines(run, line);
+                        run.addBreak();
+                    }
+                    run.addBreak();
+                }
+            }
+
+            // ===== FOOTER =====
+            XWPFParagraph footer = doc.createParagraph();
+            footer.setAlignment(ParagraphAlignment.CENTER);
+            XWPFRun footerRun = footer.createRun();
+            footerRun.setFontSize(9);
+            footerRun.setColor("808080");
+            footerRun.setText(resume.footer());
+
+            doc.write(out);
+        }
+    }
+
+    /** XWPF ignores newlines inside text, so each one becomes a break */
+    private static void setLines(XWPFRun run, String text) {
+        String[] lines = text.split("\n", -1);
+        for (int i = 0; i < lines.length; i++) {
+            if (i > 0) run.addBreak();
+            run.setText(lines[i]);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The chat's first export is chained off the reply (GeminiServer.exportOnReply), so it must
+ * finish a short, fixed time after the reply arrives however long the model took: the total
+ * follows the response delay instead of the old fixed 8 s sleep.
+ */
+class ExportLatencyTest {
+
+    private static final long EXPORT_BOUND_MILLIS = 3000;
+
+    private static final String REPLY = "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":"
+            + "\"Jane Doe\\nHamden, CT | jane@example.com | 555-0100\\n\\n"
+            + "Summary\\nComputer science student focused on backend systems.\\n\\n"
+            + "Skills\\n* Java\\n* Kotlin\\n* SQL\"}],\"role\":\"model\"},\"finishReason\":\"STOP\"}]}";
+
+    private HttpServer stub;
+    private volatile long replyDelayMillis;
+    private Path home;
+    private String realHome;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub.setExecutor(Executors.newCachedThreadPool());
+        stub.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            if (exchange.getRequestMethod().equals("HEAD") || exchange.getRequestURI().getPath().contains("/cachedContents")) {
+                exchange.sendResponseHeaders(exchange.getRequestMethod().equals("HEAD") ? 200 : 404, -1);
+                exchange.close();
+                return;
+            }
+            try {
+                Thread.sleep(replyDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = REPLY.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        stub.start();
+        // exports go to ~/Downloads
+        home = Files.createTempDirectory("export-latency");
+        Files.createDirectory(home.resolve("Downloads"));
+        realHome = System.getProperty("user.home");
+        System.setProperty("user.home", home.toString());
+    }
+
+    @AfterEach
+    void stopStub() throws IOException {
+        System.setProperty("user.home", realHome);
+        stub.stop(0);
+        try (Stream<Path> files = Files.walk(home)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(file);
+        }
+    }
+
+    @Test
+    void exportFollowsTheReplyDelay() throws Exception {
+        for (long delay : new long[] {200, 3500}) {
+            replyDelayMillis = delay;
+            long[] timing = sendAndExport("Jane Doe " + delay);
+            long totalMillis = timing[0];
+            long exportMillis = timing[1];
+            assertTrue(totalMillis >= delay, "reply came before the stub answered: " + totalMillis + " ms");
+            assertTrue(exportMillis < EXPORT_BOUND_MILLIS,
+                    "export took " + exportMillis + " ms after a reply delayed " + delay + " ms");
+            assertTrue(totalMillis < delay + EXPORT_BOUND_MILLIS,
+                    "send to export took " + totalMillis + " ms with a reply delayed " + delay + " ms");
+        }
+    }
+
+    /** Builds one resume through a fresh engine; returns send-to-exported and reply-to-exported millis */
+    private long[] sendAndExport(String name) throws Exception {
+        String url = "http://127.0.0.1:" + stub.getAddress().getPort() + "/v1/models/gemini-2.5-flash:generateContent";
+        GeminiServer server = new GeminiServer("/org/example/TEST_API_KEY.txt", GeminiServer.Mode.REFINEMENT,
+                GeminiServer.sharedHttpClient(), url);
+        server.setResponseCache(null);
+        UserInfo user = new UserInfo();
+        user.setName(name);
+        user.setEmail("jane@example.com");
+        user.setPhone("555-0100");
+        user.setCityState("Hamden, CT");
+        user.setQuals("Java. Kotlin. SQL.");
+
+        long start = System.nanoTime();
+        CompletableFuture<String> reply = server.sendAsync(user.toResumePrompt());
+        CompletableFuture<Long> repliedAt = reply.thenApply(text -> System.nanoTime());
+        Map<ExportFormat, Path> written = server.exportOnReply(user, reply, null)
+                .get(replyDelayMillis + EXPORT_BOUND_MILLIS + 10_000, TimeUnit.MILLISECONDS);
+        long end = System.nanoTime();
+
+        Path docx = written.get(ExportFormat.DOCX);
+        assertNotNull(docx, "no DOCX exported");
+        assertTrue(docx.startsWith(home), docx + " is not in ~/Downloads");
+        assertTrue(Files.size(docx) > 0, "empty export");
+        return new long[] {
+                TimeUnit.NANOSECONDS.toMillis(end - start),
+                TimeUnit.NANOSECONDS.toMillis(end - repliedAt.get())
+        };
+    }
+}
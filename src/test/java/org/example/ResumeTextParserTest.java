@@ -0,0 +1,75 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Seeded fuzzing of the reply parser: random markdown never makes it throw, and a well-formed
+ * resume reads back the same after one parse/toText round trip. How parse time scales with
+ * the input is ResumeTextParserBenchmark's job.
+ */
+class ResumeTextParserTest {
+
+    private static final String NOISE = "ab *-#:\n\t•1.)_SKILLS Experience **Projects** ## Summary\r—";
+    private static final String[] HEADINGS = {"Summary", "**Education**", "## Skills", "Experience:", "Projects",
+            "CERTIFICATIONS", "### Awards", "Volunteering:"};
+
+    @Test
+    void randomMarkdownNeverThrows() {
+        for (int seed = 0; seed < 2_000; seed++) {
+            String text = noise(new Random(seed), 1 + new Random(~seed).nextInt(4_000));
+            int s = seed;
+            assertDoesNotThrow(() -> ResumeTextParser.parse(text).toText(), () -> "seed " + s);
+        }
+    }
+
+    @Test
+    void randomResumesNeverThrow() {
+        for (int seed = 0; seed < 2_000; seed++) {
+            String text = resume(new Random(seed), true);
+            int s = seed;
+            assertDoesNotThrow(() -> ResumeTextParser.parse(text).toText(), () -> "seed " + s);
+        }
+    }
+
+    @Test
+    void wellFormedResumesAreStableUnderRoundTrip() {
+        for (int seed = 0; seed < 1_000; seed++) {
+            ParsedResume first = ResumeTextParser.parse(resume(new Random(seed), false));
+            ParsedResume again = ResumeTextParser.parse(first.toText());
+            int s = seed;
+            assertEquals(first, again, () -> "seed " + s + ":\n" + first.toText());
+        }
+    }
+
+    private static String noise(Random random, int chars) {
+        StringBuilder sb = new StringBuilder(chars);
+        while (sb.length() < chars) sb.append(NOISE.charAt(random.nextInt(NOISE.length())));
+        return sb.toString();
+    }
+
+    /**
+     * A reply in the shapes Gemini produces: contact lines, then headings over plain lines,
+     * bullets or titled entries. Messy adds markdown noise, odd bullets and stray blank lines.
+     */
+    private static String resume(Random random, boolean messy) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Jane Doe ").append(random.nextInt(1000)).append('\n');
+        sb.append("jane").append(random.nextInt(1000)).append("@example.com | Hamden, CT\n");
+        for (int s = 0, sections = 1 + random.nextInt(6); s < sections; s++) {
+            sb.append('\n').append(HEADINGS[random.nextInt(HEADINGS.length)]).append('\n');
+            for (int e = 0, entries = 1 + random.nextInt(3); e < entries; e++) {
+                sb.append("Research Assistant ").append(random.nextInt(100)).append(" — Quinnipiac University, 2024\n");
+                for (int b = 0, bullets = random.nextInt(4); b < bullets; b++) {
+                    String bullet = messy ? new String[] {"* ", "- ", "• ", "1. ", "  * ", "**"}[random.nextInt(6)] : "* ";
+                    sb.append(bullet).append("Built data pipelines in Java and Kotlin, item ").append(b).append('\n');
+                }
+                if (messy && random.nextInt(4) == 0) sb.append("\n\n");
+            }
+        }
+        return sb.toString();
+    }
+}